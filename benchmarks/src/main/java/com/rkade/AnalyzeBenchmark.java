@@ -0,0 +1,70 @@
+package com.rkade;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Capture analysis with a growing number of workers, on a recording of live frames
+ * spread over several segments.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnalyzeBenchmark {
+    private final static int FRAMES = 400_000;
+    private final static long SEGMENT_SIZE = 16L << 20;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private Path directory;
+    private CaptureReader capture;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("analyze");
+        TelemetryRecorder recorder = new TelemetryRecorder(directory.resolve("capture"), SEGMENT_SIZE);
+        byte[][] frame = {ReportFixtures.WHEEL.clone(), ReportFixtures.AXIS.clone(), ReportFixtures.BUTTONS.clone()};
+        long sent = 0;
+        for (int i = 0; i < FRAMES; i++) {
+            for (byte[] report : frame) {
+                //the recorder drops what does not fit its ring, keep within it
+                while (sent - recorder.getRecordedCount() > 1024) {
+                    Thread.onSpinWait();
+                }
+                report[report.length - 1] = (byte) i;
+                recorder.onInputReport(Device.DATA_REPORT_ID, report, report.length);
+                sent++;
+            }
+        }
+        recorder.close();
+        capture = CaptureReader.open(directory.resolve("capture"));
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public CaptureStatistics analyze() {
+        return CaptureAnalyzer.analyze(capture, pool);
+    }
+}
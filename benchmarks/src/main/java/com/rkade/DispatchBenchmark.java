@@ -0,0 +1,98 @@
+package com.rkade;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end cost of an input report, from the HID callback through decoding,
+ * the device state update and the listener notification. {@code dispatchUnchanged}
+ * repeats the same payload, which the report change filter drops before decoding.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DispatchBenchmark {
+    //one live frame as polled by the output report thread
+    private final static byte[][] FRAME = {
+            ReportFixtures.WHEEL,
+            ReportFixtures.AXIS,
+            ReportFixtures.BUTTONS
+    };
+
+    @Param({"WHEEL", "AXIS", "GAINS", "MISC", "BUTTONS", "VERSION"})
+    public String reportType;
+
+    private byte[] data;
+    private byte[] changedData;
+    private byte[][] changedFrame;
+    private boolean toggle;
+    private DeviceConnection connection;
+    private BlackholeListener listener;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        data = ReportFixtures.forName(reportType);
+        //differs only in the unused tail, so it gets past the change filter but decodes the same
+        changedData = data.clone();
+        changedData[changedData.length - 1] ^= 1;
+        changedFrame = new byte[FRAME.length][];
+        for (int i = 0; i < FRAME.length; i++) {
+            changedFrame[i] = FRAME[i].clone();
+            changedFrame[i][FRAME[i].length - 1] ^= 1;
+        }
+        //never opened or started, reports are fed straight into its input path
+        connection = new DeviceConnection(new Device("benchmark", "Benchmark Wheel"),
+                new ReplayTransport("benchmark", List.of()), c -> {
+        });
+        listener = new BlackholeListener(blackhole);
+        DeviceManager.addDeviceListener(listener);
+    }
+
+    @TearDown
+    public void tearDown() {
+        DeviceManager.removeDeviceListener(listener);
+    }
+
+    @Benchmark
+    public void dispatch() {
+        byte[] report = toggle ? changedData : data;
+        toggle = !toggle;
+        connection.dispatchInputReport(Device.DATA_REPORT_ID, report, report.length);
+    }
+
+    @Benchmark
+    public void dispatchUnchanged() {
+        connection.dispatchInputReport(Device.DATA_REPORT_ID, data, data.length);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(3)
+    public void dispatchLiveFrame() {
+        byte[][] frame = toggle ? changedFrame : FRAME;
+        toggle = !toggle;
+        for (byte[] report : frame) {
+            connection.dispatchInputReport(Device.DATA_REPORT_ID, report, report.length);
+        }
+    }
+
+    private record BlackholeListener(Blackhole blackhole) implements DeviceListener {
+        @Override
+        public void deviceAttached(Device device) {
+        }
+
+        @Override
+        public void deviceDetached(Device device) {
+        }
+
+        @Override
+        public void deviceUpdated(Device device, String status, DataReport report) {
+            blackhole.consume(report);
+        }
+    }
+}
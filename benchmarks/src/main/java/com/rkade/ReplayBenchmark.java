@@ -0,0 +1,68 @@
+package com.rkade;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a recorded session as fast as possible through the whole input path: transport,
+ * change filter, decoding, device state and the listeners. The session is recorded once from
+ * a simulated wheel, so the traffic mix is the one the poll plan produces.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReplayBenchmark {
+    private final static long RECORDING_TIME = 3000;
+    private List<CapturedReport> session;
+    private DeviceListener listener;
+    private int replays = 0;
+
+    @Setup
+    public void setup(Blackhole blackhole) throws IOException, InterruptedException {
+        List<CapturedReport> reports = new CopyOnWriteArrayList<>();
+        SimulatedDevice simulated = new SimulatedDevice("recorded");
+        Device device = DeviceManager.attach(simulated);
+        DeviceManager.setReportTap(device, (id, data, length) ->
+                reports.add(new CapturedReport(System.nanoTime(), id, data.clone())));
+        Thread.sleep(RECORDING_TIME);
+        simulated.close();
+        session = List.copyOf(reports);
+        listener = new DeviceListener() {
+            @Override
+            public void deviceAttached(Device device) {
+            }
+
+            @Override
+            public void deviceDetached(Device device) {
+            }
+
+            @Override
+            public void deviceUpdated(Device device, String status, DataReport report) {
+                blackhole.consume(report);
+            }
+        };
+        DeviceManager.addDeviceListener(listener);
+    }
+
+    @TearDown
+    public void tearDown() {
+        DeviceManager.removeDeviceListener(listener);
+    }
+
+    @Benchmark
+    public long replaySession() throws IOException {
+        //a new path each time, so every replay starts from a fresh device
+        ReplayTransport replay = new ReplayTransport("session " + replays++, session);
+        replay.setSpeed(0);
+        DeviceManager.attach(replay);
+        return replay.getFinished().join();
+    }
+}
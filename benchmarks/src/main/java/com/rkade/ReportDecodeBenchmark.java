@@ -0,0 +1,39 @@
+package com.rkade;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode cost of one input report per type, allocating through {@link DataReportFactory}
+ * versus the reused holders of {@link ReportDecoder}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReportDecodeBenchmark {
+    @Param({"WHEEL", "AXIS", "GAINS", "MISC", "BUTTONS", "VERSION"})
+    public String reportType;
+
+    private byte[] data;
+    private ReportDecoder decoder;
+
+    @Setup
+    public void setup() {
+        data = ReportFixtures.forName(reportType);
+        decoder = new ReportDecoder();
+    }
+
+    @Benchmark
+    public DataReport factoryCreate() {
+        return DataReportFactory.create(Device.DATA_REPORT_ID, data);
+    }
+
+    @Benchmark
+    public DataReport decoderDecode() {
+        return decoder.decode(Device.DATA_REPORT_ID, data, data.length);
+    }
+}
@@ -0,0 +1,87 @@
+package com.rkade;
+
+/**
+ * Input report payloads captured from a wheel, as delivered to {@code onInputReport}.
+ */
+final class ReportFixtures {
+    static final byte[] VERSION = {
+            0x01, 0x00, 0x00, 0x52, 0x4b, 0x41, 0x44, 0x45,
+            0x00, 0x31, 0x2e, 0x31, 0x2e, 0x35, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00
+    };
+
+    static final byte[] WHEEL = {
+            0x02, 0x00, 0x00, (byte) 0xbf, 0x28, 0x00, 0x00, 0x72,
+            0x10, (byte) 0x84, 0x03, (byte) 0xdb, (byte) 0xff, 0x05, 0x00, 0x00,
+            (byte) 0x83, 0x00, 0x7d, 0x0c, 0x00, 0x32, 0x00, 0x01,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00
+    };
+
+    static final byte[] AXIS = {
+            0x03, 0x01, 0x00, 0x64, 0x02, (byte) 0xe7, 0x4f, (byte) 0xb4,
+            0x00, 0x7a, 0x03, 0x00, (byte) 0x80, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00
+    };
+
+    static final byte[] BUTTONS = {
+            0x04, 0x00, 0x00, 0x05, 0x00, 0x00, 0x00, 0x00,
+            0x0a, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00
+    };
+
+    static final byte[] GAINS = {
+            0x05, 0x00, 0x00, 0x00, 0x04, 0x00, 0x04, 0x00,
+            0x04, 0x00, 0x04, 0x00, 0x04, 0x00, 0x04, 0x00,
+            0x04, 0x00, 0x04, 0x00, 0x03, 0x00, 0x04, 0x00,
+            0x04, 0x00, 0x02, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00
+    };
+
+    static final byte[] MISC = {
+            0x06, 0x00, 0x00, 0x64, 0x00, (byte) 0xc8, 0x00, 0x2c,
+            0x01, 0x00, 0x00, (byte) 0xff, 0x3f, (byte) 0xff, 0x3f, 0x0b,
+            (byte) 0xd0, 0x07, (byte) 0xf4, 0x01, 0x00, 0x01, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00
+    };
+
+    private ReportFixtures() {
+    }
+
+    static byte[] forName(String name) {
+        return switch (name) {
+            case "VERSION" -> VERSION;
+            case "WHEEL" -> WHEEL;
+            case "AXIS" -> AXIS;
+            case "BUTTONS" -> BUTTONS;
+            case "GAINS" -> GAINS;
+            case "MISC" -> MISC;
+            default -> throw new IllegalArgumentException("Unknown fixture:" + name);
+        };
+    }
+}
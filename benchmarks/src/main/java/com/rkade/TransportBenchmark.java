@@ -0,0 +1,59 @@
+package com.rkade;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of one get report request to a simulated device, straight or through the
+ * loopback socket bridge. The difference is what the protocol layer costs without USB.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TransportBenchmark {
+    @Param({"direct", "tcp"})
+    public String transportType;
+
+    private final byte[] request = {Device.CMD_GET_STEER, 0, 0, 0, 0, 0, 0};
+    private SimulatedDevice simulated;
+    private TcpTransportServer server;
+    private DeviceTransport transport;
+    private volatile long answered;
+
+    @Setup
+    public void setup() throws IOException {
+        simulated = new SimulatedDevice("benchmark");
+        if (transportType.equals("tcp")) {
+            server = new TcpTransportServer(simulated, 0);
+            server.start();
+            transport = new TcpTransport("localhost", server.getPort());
+        } else {
+            transport = simulated;
+        }
+        transport.setInputReportListener((id, data, length) -> answered++);
+        transport.open();
+    }
+
+    @TearDown
+    public void tearDown() {
+        transport.close();
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Benchmark
+    public long roundTrip() {
+        long before = answered;
+        transport.setOutputReport(Device.CMD_REPORT_ID, request, request.length);
+        while (answered == before) {
+            Thread.onSpinWait();
+        }
+        return answered;
+    }
+}
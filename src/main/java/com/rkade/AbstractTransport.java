@@ -0,0 +1,57 @@
+package com.rkade;
+
+/**
+ * Counts what goes through a transport and holds its listeners. Implementations write in
+ * {@link #write(byte, byte[], int)} and hand received reports to {@link #received(byte, byte[], int)}.
+ */
+public abstract class AbstractTransport implements DeviceTransport {
+    private final TransportStats stats = new TransportStats();
+    private volatile InputReportListener inputReportListener;
+    private volatile Runnable removalListener;
+
+    @Override
+    public final int setOutputReport(byte reportId, byte[] data, int length) {
+        long start = System.nanoTime();
+        int ret = write(reportId, data, length);
+        stats.onWrite(ret, start, System.nanoTime());
+        return ret;
+    }
+
+    /**
+     * @return bytes written, zero or less on error
+     */
+    protected abstract int write(byte reportId, byte[] data, int length);
+
+    protected void received(byte reportId, byte[] data, int length) {
+        stats.onRead(length, System.nanoTime());
+        InputReportListener listener = inputReportListener;
+        if (listener != null) {
+            listener.onInputReport(reportId, data, length);
+        }
+    }
+
+    /**
+     * Tells the connection the device is gone.
+     */
+    protected void removed() {
+        Runnable listener = removalListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    @Override
+    public void setInputReportListener(InputReportListener listener) {
+        inputReportListener = listener;
+    }
+
+    @Override
+    public void setRemovalListener(Runnable listener) {
+        removalListener = listener;
+    }
+
+    @Override
+    public TransportStats getStats() {
+        return stats;
+    }
+}
@@ -6,7 +6,16 @@ import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 
@@ -16,10 +25,28 @@ public class App {
     public static final String CL_PARAM_AUTO_CENTER = "autocenter";
     public static final String CL_PARAM_CENTER = "center";
     public static final String CL_PARAM_HELP = "help";
+    public static final String CL_PARAM_FRAME_RATE = "fps";
+    public static final String CL_PARAM_FLEET = "fleet";
+    public static final String CL_PARAM_DEVICES = "devices";
+    public static final String CL_PARAM_TIMEOUT = "timeout";
+    public static final String CL_PARAM_SIMULATE = "simulate";
+    public static final String CL_PARAM_CONNECT = "connect";
+    public static final String CL_PARAM_RECORD = "record";
+    public static final String CL_PARAM_REPLAY = "replay";
+    public static final String CL_PARAM_SPEED = "speed";
+    public static final String CL_PARAM_ANALYZE = "analyze";
+    private static final int FLEET_DISCOVERY_TIME = 5000;
+    private static final int FLEET_TIMEOUT = 10000;
     private static DeviceManager deviceManager;
+    private static int simulatedDevices = 0;
+    private static String[] remoteDevices = new String[0];
+    private static Path recordingDirectory = null;
+    private static String[] replayedCaptures = new String[0];
+    private static double replaySpeed = 1;
 
     public static void main(String[] args) {
         boolean showGui = true;
+        int frameRate = FrameCoalescingListener.DEFAULT_FRAME_RATE;
         System.setProperty("fazecast.jSerialComm.appid", "com.rkade.RKadeWheelConfig");
 
         Options options = setupCommandLineOptions();
@@ -34,44 +61,89 @@ public class App {
                 System.exit(1);
             }
 
+            if (cl.hasOption(CL_PARAM_FRAME_RATE)) {
+                frameRate = Integer.parseInt(cl.getOptionValue(CL_PARAM_FRAME_RATE));
+            }
+
+            if (cl.hasOption(CL_PARAM_SIMULATE)) {
+                simulatedDevices = Integer.parseInt(cl.getOptionValue(CL_PARAM_SIMULATE));
+            }
+
+            if (cl.hasOption(CL_PARAM_CONNECT)) {
+                remoteDevices = cl.getOptionValues(CL_PARAM_CONNECT);
+            }
+
+            if (cl.hasOption(CL_PARAM_REPLAY)) {
+                replayedCaptures = cl.getOptionValues(CL_PARAM_REPLAY);
+            }
+
+            if (cl.hasOption(CL_PARAM_SPEED)) {
+                replaySpeed = Double.parseDouble(cl.getOptionValue(CL_PARAM_SPEED));
+            }
+
+            if (cl.hasOption(CL_PARAM_RECORD)) {
+                recordingDirectory = Path.of(cl.getOptionValue(CL_PARAM_RECORD));
+            }
+
+            if (cl.hasOption(CL_PARAM_ANALYZE)) {
+                int failed = 0;
+                try {
+                    long start = System.nanoTime();
+                    CaptureStatistics statistics = CaptureAnalyzer.analyze(
+                            CaptureReader.open(Path.of(cl.getOptionValue(CL_PARAM_ANALYZE))));
+                    System.out.println(statistics);
+                    System.out.printf("Analyzed in %dms%n", (System.nanoTime() - start) / 1_000_000);
+                } catch (IOException e) {
+                    System.out.println("Analysis failed: " + e.getMessage());
+                    failed = 1;
+                }
+                System.exit(failed);
+            }
+
+            if (cl.hasOption(CL_PARAM_FLEET)) {
+                int failed;
+                try {
+                    failed = runFleet(cl);
+                } catch (Exception e) {
+                    System.out.println("Fleet run failed: " + e.getMessage());
+                    failed = 1;
+                }
+                System.exit(failed);
+            }
+
             if (cl.hasOption(CL_PARAM_SPRING_ON) || cl.hasOption(CL_PARAM_SPRING_OFF)
                     || cl.hasOption(CL_PARAM_AUTO_CENTER) || cl.hasOption(CL_PARAM_CENTER)) {
                 showGui = false;
                 int failed = 0;
                 Device device = DeviceManager.openDevice();
                 if (device != null) {
+                    //queued together, the serial port stays open and they are written back to back
+                    List<TextCommand> commands = new ArrayList<>();
                     if (cl.hasOption(CL_PARAM_SPRING_ON)) {
-                        if (device.setConstantSpring(true)) {
-                            System.out.println("Constant Spring enabled");
-                        } else {
-                            failed = 1;
-                            System.out.println("Error enabling Constant Spring");
-                        }
+                        commands.add(new TextCommand(device.sendText(Device.CMD_SPRING_ON_TEXT),
+                                "Constant Spring enabled", "Error enabling Constant Spring"));
                     }
                     if (cl.hasOption(CL_PARAM_SPRING_OFF)) {
-                        if (device.setConstantSpring(false)) {
-                            System.out.println("Constant Spring disabled");
-                        } else {
-                            failed = 1;
-                            System.out.println("Error disabling Constant Spring");
-                        }
+                        commands.add(new TextCommand(device.sendText(Device.CMD_SPRING_OFF_TEXT),
+                                "Constant Spring disabled", "Error disabling Constant Spring"));
                     }
                     if (cl.hasOption(CL_PARAM_AUTO_CENTER)) {
-                        if (device.runAutoCenter()) {
-                            System.out.println("AutoCenter complete");
-                        } else {
-                            failed = 1;
-                            System.out.println("Error running AutoCenter");
-                        }
+                        commands.add(new TextCommand(device.sendText(Device.CMD_AUTOCENTER_TEXT),
+                                "AutoCenter complete", "Error running AutoCenter"));
                     }
                     if (cl.hasOption(CL_PARAM_CENTER)) {
-                        if (device.setWheelCenterCli()) {
-                            System.out.println("Wheel center set to current position");
+                        commands.add(new TextCommand(device.sendText(Device.CMD_CENTER_TEXT),
+                                "Wheel center set to current position", "Error setting wheel center"));
+                    }
+                    for (TextCommand command : commands) {
+                        if (command.result().join()) {
+                            System.out.println(command.success());
                         } else {
                             failed = 1;
-                            System.out.println("Error setting wheel center");
+                            System.out.println(command.error());
                         }
                     }
+                    device.closePort();
                 } else {
                     failed = 1;
                     System.out.println("Could not open device for cli");
@@ -94,6 +166,7 @@ public class App {
                 ex.printStackTrace();
             }
             Logger logger = Logger.getLogger(App.class.getName());
+            int guiFrameRate = frameRate;
 
             SwingUtilities.invokeLater(() -> {
                 try {
@@ -110,7 +183,12 @@ public class App {
                     frame.setLocationRelativeTo(null);
                     frame.setVisible(true);
 
-                    deviceManager = new DeviceManager(mainForm);
+                    if (recordingDirectory != null) {
+                        startRecording(recordingDirectory);
+                    }
+                    //device events arrive on the HID threads, the form is only updated on the EDT once per frame
+                    deviceManager = new DeviceManager(new FrameCoalescingListener(mainForm, guiFrameRate));
+                    attachExtraDevices();
                 } catch (Exception ex) {
                     logger.warning(ex.getMessage());
                 }
@@ -118,6 +196,102 @@ public class App {
         }
     }
 
+    private static void attachExtraDevices() throws IOException {
+        for (int i = 1; i <= simulatedDevices; i++) {
+            DeviceManager.attach(new SimulatedDevice("Simulated Wheel " + i));
+        }
+        for (String remote : remoteDevices) {
+            int separator = remote.lastIndexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected host:port, got " + remote);
+            }
+            DeviceManager.attach(new TcpTransport(remote.substring(0, separator),
+                    Integer.parseInt(remote.substring(separator + 1))));
+        }
+        for (String capture : replayedCaptures) {
+            Path path = Path.of(capture);
+            ReplayTransport replay = new ReplayTransport(String.valueOf(path.getFileName()),
+                    CaptureReader.open(path).reports());
+            replay.setSpeed(replaySpeed);
+            DeviceManager.attach(replay);
+        }
+    }
+
+    /**
+     * Records every device attached from now on into its own capture under the directory.
+     */
+    private static void startRecording(Path directory) {
+        Logger logger = Logger.getLogger(App.class.getName());
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+        Map<String, TelemetryRecorder> recorders = new ConcurrentHashMap<>();
+        DeviceManager.addDeviceListener(new DeviceListener() {
+            @Override
+            public void deviceAttached(Device device) {
+                String name = device.getName().replaceAll("[^A-Za-z0-9_-]+", "_") + "-"
+                        + format.format(LocalDateTime.now());
+                try {
+                    TelemetryRecorder recorder = new TelemetryRecorder(directory.resolve(name));
+                    recorders.put(device.getHidPath(), recorder);
+                    DeviceManager.setReportTap(device, recorder);
+                    logger.info("recording " + device.getName() + " to " + recorder.getDirectory());
+                } catch (IOException ex) {
+                    logger.warning("Could not record " + device.getName() + ": " + ex.getMessage());
+                }
+            }
+
+            @Override
+            public void deviceDetached(Device device) {
+                TelemetryRecorder recorder = recorders.remove(device.getHidPath());
+                if (recorder != null) {
+                    recorder.close();
+                }
+            }
+
+            @Override
+            public void deviceUpdated(Device device, String status, DataReport report) {
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> recorders.values().forEach(TelemetryRecorder::close)));
+    }
+
+    private static int runFleet(CommandLine cl) throws IOException, InterruptedException {
+        DeviceConfig profile = DeviceProfile.load(Path.of(cl.getOptionValue(CL_PARAM_FLEET)));
+        int expected = cl.hasOption(CL_PARAM_DEVICES) ? Integer.parseInt(cl.getOptionValue(CL_PARAM_DEVICES))
+                : Integer.MAX_VALUE;
+        long timeout = cl.hasOption(CL_PARAM_TIMEOUT) ? Long.parseLong(cl.getOptionValue(CL_PARAM_TIMEOUT))
+                : FLEET_TIMEOUT;
+        System.out.println("Applying " + profile.size() + " settings");
+        deviceManager = new DeviceManager(new DeviceListener() {
+            @Override
+            public void deviceAttached(Device device) {
+                System.out.println("Attached " + device.getName() + " [" + device.getHidPath() + "]");
+            }
+
+            @Override
+            public void deviceDetached(Device device) {
+                System.out.println("Detached " + device.getName() + " [" + device.getHidPath() + "]");
+            }
+
+            @Override
+            public void deviceUpdated(Device device, String status, DataReport report) {
+            }
+        });
+        attachExtraDevices();
+        List<Device> devices = FleetRunner.awaitDevices(expected, expected == Integer.MAX_VALUE
+                ? FLEET_DISCOVERY_TIME : timeout);
+        if (devices.isEmpty() || (expected != Integer.MAX_VALUE && devices.size() < expected)) {
+            System.out.println("Found " + devices.size() + " device(s), expected "
+                    + (expected == Integer.MAX_VALUE ? "at least one" : expected));
+            return 1;
+        }
+        List<FleetRunner.Result> results = new FleetRunner(profile, timeout).run(devices);
+        System.out.println(FleetRunner.summary(results));
+        return results.stream().allMatch(FleetRunner.Result::isSuccess) ? 0 : 1;
+    }
+
+    private record TextCommand(CompletableFuture<Boolean> result, String success, String error) {
+    }
+
     @NotNull
     private static Options setupCommandLineOptions() {
         Options options = new Options();
@@ -142,6 +316,86 @@ public class App {
         centerOption.setOptionalArg(false);
         options.addOption(centerOption);
 
+        Option frameRateOption = Option.builder()
+                .longOpt(CL_PARAM_FRAME_RATE)
+                .desc("Frame rate of the live display, default " + FrameCoalescingListener.DEFAULT_FRAME_RATE)
+                .required(false)
+                .hasArg(true)
+                .build();
+        options.addOption(frameRateOption);
+
+        Option fleetOption = Option.builder()
+                .longOpt(CL_PARAM_FLEET)
+                .desc("Apply the profile in the given properties file to every attached device, save and verify it")
+                .required(false)
+                .hasArg(true)
+                .build();
+        options.addOption(fleetOption);
+
+        Option devicesOption = Option.builder()
+                .longOpt(CL_PARAM_DEVICES)
+                .desc("Number of devices to wait for in fleet mode")
+                .required(false)
+                .hasArg(true)
+                .build();
+        options.addOption(devicesOption);
+
+        Option timeoutOption = Option.builder()
+                .longOpt(CL_PARAM_TIMEOUT)
+                .desc("Milliseconds to wait for each step in fleet mode, default " + FLEET_TIMEOUT)
+                .required(false)
+                .hasArg(true)
+                .build();
+        options.addOption(timeoutOption);
+
+        Option simulateOption = Option.builder()
+                .longOpt(CL_PARAM_SIMULATE)
+                .desc("Attach the given number of simulated devices, for trying the app without hardware")
+                .required(false)
+                .hasArg(true)
+                .build();
+        options.addOption(simulateOption);
+
+        Option connectOption = Option.builder()
+                .longOpt(CL_PARAM_CONNECT)
+                .desc("Attach the device served at host:port by a transport bridge, may be repeated")
+                .required(false)
+                .hasArg(true)
+                .build();
+        options.addOption(connectOption);
+
+        Option recordOption = Option.builder()
+                .longOpt(CL_PARAM_RECORD)
+                .desc("Record the input reports of every attached device into captures under the given directory")
+                .required(false)
+                .hasArg(true)
+                .build();
+        options.addOption(recordOption);
+
+        Option replayOption = Option.builder()
+                .longOpt(CL_PARAM_REPLAY)
+                .desc("Attach a device playing back the given capture, may be repeated")
+                .required(false)
+                .hasArg(true)
+                .build();
+        options.addOption(replayOption);
+
+        Option speedOption = Option.builder()
+                .longOpt(CL_PARAM_SPEED)
+                .desc("Replay speed as a multiple of the recorded pace, 0 for as fast as possible, default 1")
+                .required(false)
+                .hasArg(true)
+                .build();
+        options.addOption(speedOption);
+
+        Option analyzeOption = Option.builder()
+                .longOpt(CL_PARAM_ANALYZE)
+                .desc("Print axis, wheel angle, button and report gap statistics of the given capture")
+                .required(false)
+                .hasArg(true)
+                .build();
+        options.addOption(analyzeOption);
+
         Option helpOption = Option.builder("h")
                 .longOpt(CL_PARAM_HELP)
                 .required(false)
@@ -1,22 +1,46 @@
 package com.rkade;
 
 import java.nio.ByteBuffer;
+import java.util.Objects;
 
 public final class AxisDataReport extends DataReport {
-    private final short rawValue;
-    private final short value;
-    private final short min;
-    private final short max;
-    private final short center;
-    private final short deadZone;
-    private final boolean autoLimit;
-    private final boolean hasCenter;
-    private final boolean enabled;
-    private final byte trim;
-    private final int axis;
+    short rawValue;
+    short value;
+    short min;
+    short max;
+    short center;
+    short deadZone;
+    boolean autoLimit;
+    boolean hasCenter;
+    boolean enabled;
+    byte trim;
+    int axis;
 
     public AxisDataReport(byte reportType, byte reportIndex, short section, ByteBuffer buffer) {
         super(reportType, reportIndex, section);
+        decode(buffer);
+    }
+
+    AxisDataReport() {
+    }
+
+    private AxisDataReport(AxisDataReport other) {
+        super(other.reportType, (byte) other.reportIndex, other.section);
+        rawValue = other.rawValue;
+        value = other.value;
+        min = other.min;
+        max = other.max;
+        center = other.center;
+        deadZone = other.deadZone;
+        autoLimit = other.autoLimit;
+        hasCenter = other.hasCenter;
+        enabled = other.enabled;
+        trim = other.trim;
+        axis = other.axis;
+    }
+
+    @Override
+    void decode(ByteBuffer buffer) {
         axis = section + 1;
         rawValue = buffer.getShort();
         value = buffer.getShort();
@@ -32,6 +56,11 @@ public final class AxisDataReport extends DataReport {
         trim = buffer.get();
     }
 
+    @Override
+    public AxisDataReport snapshot() {
+        return new AxisDataReport(this);
+    }
+
     public int getAxis() {
         return axis;
     }
@@ -75,4 +104,23 @@ public final class AxisDataReport extends DataReport {
     public byte getTrim() {
         return trim;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AxisDataReport that)) {
+            return false;
+        }
+        return headerEquals(that) && rawValue == that.rawValue && value == that.value && min == that.min
+                && max == that.max && center == that.center && deadZone == that.deadZone
+                && autoLimit == that.autoLimit && hasCenter == that.hasCenter && enabled == that.enabled
+                && trim == that.trim;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(section, rawValue, value, min, max, center, deadZone, autoLimit, hasCenter, enabled, trim);
+    }
 }
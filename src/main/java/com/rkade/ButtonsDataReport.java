@@ -1,21 +1,43 @@
 package com.rkade;
 
 import java.nio.ByteBuffer;
+import java.util.Objects;
 
 public final class ButtonsDataReport extends DataReport {
-    private final int buttonsState;
-    private final byte shiftButton;
-    private final int debounce;
-    private final boolean multiplexShifterButtons;
+    int buttonsState;
+    byte shiftButton;
+    int debounce;
+    boolean multiplexShifterButtons;
 
     public ButtonsDataReport(byte reportType, byte reportIndex, short section, ByteBuffer buffer) {
         super(reportType, reportIndex, section);
+        decode(buffer);
+    }
+
+    ButtonsDataReport() {
+    }
+
+    private ButtonsDataReport(ButtonsDataReport other) {
+        super(other.reportType, (byte) other.reportIndex, other.section);
+        buttonsState = other.buttonsState;
+        shiftButton = other.shiftButton;
+        debounce = other.debounce;
+        multiplexShifterButtons = other.multiplexShifterButtons;
+    }
+
+    @Override
+    void decode(ByteBuffer buffer) {
         buttonsState = buffer.getInt();
         shiftButton = buffer.get();
         debounce = Byte.toUnsignedInt(buffer.get());
         multiplexShifterButtons = buffer.get() > 0;
     }
 
+    @Override
+    public ButtonsDataReport snapshot() {
+        return new ButtonsDataReport(this);
+    }
+
     public int getButtonsState() {
         return buttonsState;
     }
@@ -31,4 +53,21 @@ public final class ButtonsDataReport extends DataReport {
     public boolean isMultiplexShifterButtons() {
         return multiplexShifterButtons;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ButtonsDataReport that)) {
+            return false;
+        }
+        return headerEquals(that) && buttonsState == that.buttonsState && shiftButton == that.shiftButton
+                && debounce == that.debounce && multiplexShifterButtons == that.multiplexShifterButtons;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(buttonsState, shiftButton, debounce, multiplexShifterButtons);
+    }
 }
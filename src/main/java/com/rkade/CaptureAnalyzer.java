@@ -0,0 +1,141 @@
+package com.rkade;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Decodes a capture in parallel into {@link CaptureStatistics}. Segments are split between the
+ * workers, then each segment is cut into chunks at record boundaries, found by hopping from one
+ * record header to the next. Chunks are decoded in place from the mapping with the same decoders
+ * the live input path uses, and the results are combined in recording order.
+ */
+public final class CaptureAnalyzer {
+    //about 5MB of 64 byte reports
+    final static int CHUNK_RECORDS = 1 << 16;
+
+    private CaptureAnalyzer() {
+    }
+
+    public static CaptureStatistics analyze(CaptureReader capture, ForkJoinPool pool) {
+        return analyze(capture, pool, CHUNK_RECORDS);
+    }
+
+    public static CaptureStatistics analyze(CaptureReader capture) {
+        return analyze(capture, ForkJoinPool.commonPool());
+    }
+
+    static CaptureStatistics analyze(CaptureReader capture, ForkJoinPool pool, int chunkRecords) {
+        List<ByteBuffer> segments = capture.getSegments();
+        if (segments.isEmpty()) {
+            return new CaptureStatistics();
+        }
+        return pool.invoke(new SegmentTask(segments, 0, segments.size(), chunkRecords));
+    }
+
+    /**
+     * @return offsets of every chunk start, followed by the end of the last record
+     */
+    static int[] findChunks(ByteBuffer segment, int chunkRecords) {
+        int[] bounds = new int[16];
+        int chunks = 0;
+        CaptureReader.Record record = new CaptureReader.Record();
+        int offset = 0;
+        long records = 0;
+        while (CaptureReader.Record.isRecordAt(segment, offset)) {
+            if (records++ % chunkRecords == 0) {
+                if (chunks == bounds.length) {
+                    bounds = Arrays.copyOf(bounds, chunks * 2);
+                }
+                bounds[chunks++] = offset;
+            }
+            record.moveTo(segment, offset);
+            offset = record.nextOffset();
+        }
+        int[] result = Arrays.copyOf(bounds, chunks + 1);
+        result[chunks] = offset;
+        return result;
+    }
+
+    private static CaptureStatistics decode(ByteBuffer segment, int start, int end) {
+        CaptureStatistics statistics = new CaptureStatistics();
+        ReportDecoder decoder = new ReportDecoder();
+        CaptureReader.Record record = new CaptureReader.Record();
+        //one view per chunk, moved over each payload
+        ByteBuffer payload = segment.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int offset = start;
+        while (offset < end) {
+            record.moveTo(segment, offset);
+            int next = record.nextOffset();
+            payload.limit(next).position(next - record.length());
+            try {
+                statistics.add(record.timestampNanos(), decoder.decode(record.reportId(), payload));
+            } catch (BufferUnderflowException ex) {
+                statistics.addMalformed();
+            }
+            offset = next;
+        }
+        return statistics;
+    }
+
+    private final static class SegmentTask extends RecursiveTask<CaptureStatistics> {
+        private final List<ByteBuffer> segments;
+        private final int from;
+        private final int to;
+        private final int chunkRecords;
+
+        private SegmentTask(List<ByteBuffer> segments, int from, int to, int chunkRecords) {
+            this.segments = segments;
+            this.from = from;
+            this.to = to;
+            this.chunkRecords = chunkRecords;
+        }
+
+        @Override
+        protected CaptureStatistics compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                SegmentTask first = new SegmentTask(segments, from, middle, chunkRecords);
+                first.fork();
+                CaptureStatistics second = new SegmentTask(segments, middle, to, chunkRecords).compute();
+                return first.join().append(second);
+            }
+            ByteBuffer segment = segments.get(from);
+            int[] bounds = findChunks(segment, chunkRecords);
+            if (bounds.length == 1) {
+                return new CaptureStatistics();
+            }
+            return new ChunkTask(segment, bounds, 0, bounds.length - 1).compute();
+        }
+    }
+
+    private final static class ChunkTask extends RecursiveTask<CaptureStatistics> {
+        private final ByteBuffer segment;
+        private final int[] bounds;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(ByteBuffer segment, int[] bounds, int from, int to) {
+            this.segment = segment;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected CaptureStatistics compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                ChunkTask first = new ChunkTask(segment, bounds, from, middle);
+                first.fork();
+                CaptureStatistics second = new ChunkTask(segment, bounds, middle, to).compute();
+                return first.join().append(second);
+            }
+            return decode(segment, bounds[from], bounds[to]);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.rkade;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import static com.rkade.TelemetryRecorder.*;
+
+/**
+ * Reads a capture written by {@link TelemetryRecorder}. The segments are mapped read only and
+ * records are read in place: the iterator hands out one {@link Record} view that moves along the
+ * mapping, so nothing is copied unless {@link Record#copyPayload()} is called.
+ */
+public final class CaptureReader implements Iterable<CaptureReader.Record> {
+    private final List<ByteBuffer> segments;
+    private final long startMillis;
+
+    private CaptureReader(List<ByteBuffer> segments, long startMillis) {
+        this.segments = segments;
+        this.startMillis = startMillis;
+    }
+
+    /**
+     * @param path a capture directory or a single segment file
+     */
+    public static CaptureReader open(Path path) throws IOException {
+        List<Path> files = Files.isDirectory(path) ? segments(path) : List.of(path);
+        if (files.isEmpty()) {
+            throw new IOException("No capture segments in " + path);
+        }
+        List<ByteBuffer> segments = new ArrayList<>();
+        long startMillis = 0;
+        for (Path file : files) {
+            ByteBuffer segment;
+            //the mapping stays valid once the channel is closed
+            try (FileChannel channel = FileChannel.open(file)) {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            if (segment.capacity() < HEADER_SIZE || segment.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a capture segment");
+            }
+            if (segment.getShort(4) != VERSION) {
+                throw new IOException(file + " has unsupported version " + segment.getShort(4));
+            }
+            startMillis = segment.getLong(12);
+            segments.add(segment.position(segment.getShort(6)).slice().order(ByteOrder.LITTLE_ENDIAN));
+        }
+        return new CaptureReader(segments, startMillis);
+    }
+
+    /**
+     * @return the segment files of a capture directory in recording order
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+    }
+
+    /**
+     * @return the records of each segment, without the header
+     */
+    List<ByteBuffer> getSegments() {
+        return segments;
+    }
+
+    /**
+     * @return wall clock time the recording started
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @return a view of each record in turn, only valid until the next call to next()
+     */
+    @Override
+    public Iterator<Record> iterator() {
+        return new Iterator<>() {
+            private final Record record = new Record();
+            private int segment = 0;
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (segment < segments.size()) {
+                    if (Record.isRecordAt(segments.get(segment), next)) {
+                        return true;
+                    }
+                    segment++;
+                    next = 0;
+                }
+                return false;
+            }
+
+            @Override
+            public Record next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                record.moveTo(segments.get(segment), next);
+                next = record.nextOffset();
+                return record;
+            }
+        };
+    }
+
+    /**
+     * @return the records copied for {@link ReplayTransport}
+     */
+    public List<CapturedReport> toReports() {
+        List<CapturedReport> reports = new ArrayList<>();
+        for (CapturedReport report : reports()) {
+            reports.add(report);
+        }
+        return reports;
+    }
+
+    /**
+     * @return the records copied one at a time as they are iterated, for captures too big to hold
+     */
+    public Iterable<CapturedReport> reports() {
+        return () -> new Iterator<>() {
+            private final Iterator<Record> records = iterator();
+
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public CapturedReport next() {
+                Record record = records.next();
+                return new CapturedReport(record.timestampNanos(), record.reportId(), record.copyPayload());
+            }
+        };
+    }
+
+    /**
+     * One record, read straight from the mapped segment.
+     */
+    public static final class Record {
+        private ByteBuffer buffer;
+        private int offset;
+
+        /**
+         * @return true if a complete record starts at the offset
+         */
+        static boolean isRecordAt(ByteBuffer buffer, int offset) {
+            if (offset + RECORD_HEADER_SIZE > buffer.limit()) {
+                return false;
+            }
+            int length = buffer.getShort(offset + 9) & 0xffff;
+            return length > 0 && offset + RECORD_HEADER_SIZE + length <= buffer.limit();
+        }
+
+        void moveTo(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+        }
+
+        int nextOffset() {
+            return offset + RECORD_HEADER_SIZE + length();
+        }
+
+        /**
+         * @return nanoseconds since the recording started
+         */
+        public long timestampNanos() {
+            return buffer.getLong(offset);
+        }
+
+        public byte reportId() {
+            return buffer.get(offset + 8);
+        }
+
+        public int length() {
+            return buffer.getShort(offset + 9) & 0xffff;
+        }
+
+        public byte get(int index) {
+            return buffer.get(offset + RECORD_HEADER_SIZE + index);
+        }
+
+        /**
+         * @return a little endian view of the payload, sharing the mapping
+         */
+        public ByteBuffer payload() {
+            return buffer.slice(offset + RECORD_HEADER_SIZE, length()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        public byte[] copyPayload() {
+            byte[] data = new byte[length()];
+            buffer.get(offset + RECORD_HEADER_SIZE, data);
+            return data;
+        }
+    }
+}
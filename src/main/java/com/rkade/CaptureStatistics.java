@@ -0,0 +1,288 @@
+package com.rkade;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link CaptureAnalyzer} found in a capture, or in one chunk of it. Chunks are
+ * combined in recording order with {@link #append(CaptureStatistics)}, which also accounts
+ * for the gap and the button changes between the last report of one chunk and the first of the next.
+ */
+public final class CaptureStatistics {
+    //axis values in buckets of 16, percentiles are as precise as that
+    private final static int AXIS_BUCKET_SHIFT = 4;
+    private final static int AXIS_BUCKETS = 1 << (16 - AXIS_BUCKET_SHIFT);
+    public final static int ANGLE_BIN_DEGREES = 10;
+    private final static int MAX_ANGLE = 1800;
+    private final static int GAP_BUCKETS = 64;
+    private final static int BUTTON_COUNT = 32;
+    private final AxisStatistics[] axes = new AxisStatistics[Device.AXIS_COUNT];
+    private final long[] angleBins = new long[MAX_ANGLE * 2 / ANGLE_BIN_DEGREES + 1];
+    //bucket i holds gaps below 2^i nanoseconds
+    private final long[] gapBuckets = new long[GAP_BUCKETS];
+    private final long[] buttonPresses = new long[BUTTON_COUNT];
+    private long reports = 0;
+    private long wheelReports = 0;
+    private long malformedReports = 0;
+    private long firstTimestamp = -1;
+    private long lastTimestamp = -1;
+    private long maxGap = 0;
+    private boolean hasButtons = false;
+    private int firstButtons;
+    private int lastButtons;
+
+    CaptureStatistics() {
+        for (int i = 0; i < axes.length; i++) {
+            axes[i] = new AxisStatistics();
+        }
+    }
+
+    /**
+     * @param report decoded report, null if it is none the decoder knows
+     */
+    void add(long timestampNanos, DataReport report) {
+        reports++;
+        if (lastTimestamp < 0) {
+            firstTimestamp = timestampNanos;
+        } else {
+            addGap(timestampNanos - lastTimestamp);
+        }
+        lastTimestamp = timestampNanos;
+        if (report instanceof WheelDataReport wheel) {
+            wheelReports++;
+            int bin = (int) Math.floor(wheel.getAngle() / ANGLE_BIN_DEGREES) + MAX_ANGLE / ANGLE_BIN_DEGREES;
+            angleBins[Math.max(0, Math.min(angleBins.length - 1, bin))]++;
+        } else if (report instanceof AxisDataReport axis) {
+            int index = axis.getAxis() - 1;
+            if (index >= 0 && index < axes.length) {
+                axes[index].add(axis.getValue());
+            }
+        } else if (report instanceof ButtonsDataReport buttons) {
+            addButtons(buttons.getButtonsState());
+        }
+    }
+
+    void addMalformed() {
+        malformedReports++;
+    }
+
+    private void addGap(long nanos) {
+        nanos = Math.max(0, nanos);
+        gapBuckets[Long.SIZE - Long.numberOfLeadingZeros(nanos)]++;
+        maxGap = Math.max(maxGap, nanos);
+    }
+
+    private void addButtons(int state) {
+        if (hasButtons) {
+            countPresses(lastButtons, state);
+        } else {
+            //held when the capture starts, not pressed during it
+            hasButtons = true;
+            firstButtons = state;
+        }
+        lastButtons = state;
+    }
+
+    private void countPresses(int before, int after) {
+        int pressed = ~before & after;
+        while (pressed != 0) {
+            buttonPresses[Integer.numberOfTrailingZeros(pressed)]++;
+            pressed &= pressed - 1;
+        }
+    }
+
+    /**
+     * Adds the statistics of the chunk recorded right after this one.
+     *
+     * @return this
+     */
+    CaptureStatistics append(CaptureStatistics next) {
+        if (next.lastTimestamp >= 0) {
+            if (lastTimestamp < 0) {
+                firstTimestamp = next.firstTimestamp;
+            } else {
+                addGap(next.firstTimestamp - lastTimestamp);
+            }
+            lastTimestamp = next.lastTimestamp;
+        }
+        if (next.hasButtons) {
+            if (hasButtons) {
+                countPresses(lastButtons, next.firstButtons);
+            } else {
+                hasButtons = true;
+                firstButtons = next.firstButtons;
+            }
+            lastButtons = next.lastButtons;
+        }
+        for (int i = 0; i < axes.length; i++) {
+            axes[i].add(next.axes[i]);
+        }
+        add(angleBins, next.angleBins);
+        add(gapBuckets, next.gapBuckets);
+        add(buttonPresses, next.buttonPresses);
+        reports += next.reports;
+        wheelReports += next.wheelReports;
+        malformedReports += next.malformedReports;
+        maxGap = Math.max(maxGap, next.maxGap);
+        return this;
+    }
+
+    private static void add(long[] to, long[] from) {
+        for (int i = 0; i < to.length; i++) {
+            to[i] += from[i];
+        }
+    }
+
+    public long getReportCount() {
+        return reports;
+    }
+
+    public long getMalformedCount() {
+        return malformedReports;
+    }
+
+    /**
+     * @return time from the first to the last report
+     */
+    public long getDurationNanos() {
+        return lastTimestamp < 0 ? 0 : lastTimestamp - firstTimestamp;
+    }
+
+    /**
+     * @param axis 0 based
+     */
+    public AxisStatistics getAxis(int axis) {
+        return axes[axis];
+    }
+
+    /**
+     * @return wheel reports with an angle from the given bin start to the next bin, in degrees
+     */
+    public long getAngleCount(int binStartDegrees) {
+        return angleBins[Math.floorDiv(binStartDegrees, ANGLE_BIN_DEGREES) + MAX_ANGLE / ANGLE_BIN_DEGREES];
+    }
+
+    /**
+     * @param button 0 based
+     */
+    public long getButtonPresses(int button) {
+        return buttonPresses[button];
+    }
+
+    /**
+     * @return gaps between reports below 2^bucket nanoseconds, and at least half that
+     */
+    public long getGapCount(int bucket) {
+        return gapBuckets[bucket];
+    }
+
+    public long getMaxGapNanos() {
+        return maxGap;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        double seconds = getDurationNanos() / 1e9;
+        sb.append(String.format("%d reports over %.1fs", reports, seconds));
+        if (malformedReports > 0) {
+            sb.append(", ").append(malformedReports).append(" malformed");
+        }
+        sb.append("\n\nAxis     reports      min      max     mean      p50      p90      p99\n");
+        for (int i = 0; i < axes.length; i++) {
+            AxisStatistics axis = axes[i];
+            if (axis.getCount() > 0) {
+                sb.append(String.format("%-6d %9d %8d %8d %8.1f %8d %8d %8d%n", i + 1, axis.getCount(), axis.getMin(),
+                        axis.getMax(), axis.getMean(), axis.getPercentile(50), axis.getPercentile(90),
+                        axis.getPercentile(99)));
+            }
+        }
+        sb.append("\nWheel angle (").append(wheelReports).append(" reports)\n");
+        for (int i = 0; i < angleBins.length; i++) {
+            if (angleBins[i] > 0) {
+                int from = (i - MAX_ANGLE / ANGLE_BIN_DEGREES) * ANGLE_BIN_DEGREES;
+                sb.append(String.format("%6d..%-6d %9d %5.1f%%%n", from, from + ANGLE_BIN_DEGREES, angleBins[i],
+                        100.0 * angleBins[i] / wheelReports));
+            }
+        }
+        sb.append("\nButton presses\n");
+        boolean anyPressed = false;
+        for (int i = 0; i < buttonPresses.length; i++) {
+            if (buttonPresses[i] > 0) {
+                anyPressed = true;
+                sb.append(String.format("%-6d %9d%n", i + 1, buttonPresses[i]));
+            }
+        }
+        if (!anyPressed) {
+            sb.append("none\n");
+        }
+        sb.append("\nGap between reports (max ").append(TimeUnit.NANOSECONDS.toMicros(maxGap)).append("us)\n");
+        for (int i = 0; i < gapBuckets.length; i++) {
+            if (gapBuckets[i] > 0) {
+                sb.append(String.format("<%10.1fus %9d%n", (1L << i) / 1000.0, gapBuckets[i]));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Value distribution of one analog axis.
+     */
+    public static final class AxisStatistics {
+        private final long[] buckets = new long[AXIS_BUCKETS];
+        private long count = 0;
+        private long sum = 0;
+        private int min = Short.MAX_VALUE;
+        private int max = Short.MIN_VALUE;
+
+        void add(short value) {
+            buckets[(value - Short.MIN_VALUE) >> AXIS_BUCKET_SHIFT]++;
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        void add(AxisStatistics other) {
+            CaptureStatistics.add(buckets, other.buckets);
+            count += other.count;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public int getMin() {
+            return count == 0 ? 0 : min;
+        }
+
+        public int getMax() {
+            return count == 0 ? 0 : max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @return the value below which the percentile falls, rounded up to the bucket, within min and max
+         */
+        public int getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= target) {
+                    int upper = ((i + 1) << AXIS_BUCKET_SHIFT) - 1 + Short.MIN_VALUE;
+                    return Math.max(min, Math.min(upper, max));
+                }
+            }
+            return max;
+        }
+    }
+}
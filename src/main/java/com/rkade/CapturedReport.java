@@ -0,0 +1,9 @@
+package com.rkade;
+
+/**
+ * One input report as it arrived from a device.
+ *
+ * @param timestampNanos arrival time, only the differences between reports matter
+ */
+public record CapturedReport(long timestampNanos, byte reportId, byte[] data) {
+}
@@ -0,0 +1,168 @@
+package com.rkade;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Pending writes for one device. Only the output report thread takes from it, so every
+ * output report goes through a single writer and writes are ordered by priority, then arrival.
+ * A write that sets the same value as one still pending replaces it (last write wins), at the more
+ * urgent of the two priorities.
+ */
+final class CommandQueue {
+    private final static Logger logger = Logger.getLogger(CommandQueue.class.getName());
+    private final static int MAX_PENDING_COMMANDS = 256;
+    private final PriorityBlockingQueue<Entry> queue = new PriorityBlockingQueue<>(16,
+            Comparator.comparing((Entry entry) -> entry.priority).thenComparingLong(entry -> entry.sequence));
+    private final Map<Integer, Entry> pendingByKey = new HashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong addedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final LatencyStats latency = new LatencyStats();
+    private volatile Thread consumer;
+
+    CompletableFuture<CommandResult> add(DeviceCommand command, Priority priority) {
+        CompletableFuture<CommandResult> future = new CompletableFuture<>();
+        synchronized (pendingByKey) {
+            addedCount.incrementAndGet();
+            int key = command.getCoalesceKey();
+            if (key < 0) {
+                //later writes must not be merged into ones queued ahead of this command
+                pendingByKey.clear();
+            } else {
+                Entry pending = pendingByKey.get(key);
+                if (pending != null) {
+                    supersede(pending, future);
+                    coalescedCount.incrementAndGet();
+                    if (pending.priority.compareTo(priority) <= 0) {
+                        //already queued at least as urgently, the new value takes its place
+                        pending.command = command;
+                        pending.future = future;
+                        return future;
+                    }
+                    //a more urgent write, the older value must not be written after it
+                    queue.remove(pending);
+                    pendingByKey.remove(key);
+                }
+            }
+            if (queue.size() >= MAX_PENDING_COMMANDS) {
+                logger.warning("Command queue full, dropping:" + command);
+                future.complete(CommandResult.failed(command));
+                return future;
+            }
+            Entry entry = new Entry(command, future, key, priority, sequence.incrementAndGet(), System.nanoTime());
+            if (key >= 0) {
+                pendingByKey.put(key, entry);
+            }
+            queue.add(entry);
+        }
+        Thread thread = consumer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        return future;
+    }
+
+    /**
+     * Completes the pending entry's future once the command replacing it is written.
+     */
+    private static void supersede(Entry pending, CompletableFuture<CommandResult> replacement) {
+        CompletableFuture<CommandResult> superseded = pending.future;
+        DeviceCommand supersededCommand = pending.command;
+        replacement.whenComplete((result, ex) -> {
+            if (ex != null) {
+                superseded.completeExceptionally(ex);
+            } else {
+                superseded.complete(CommandResult.superseded(supersededCommand, result));
+            }
+        });
+    }
+
+    boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    Entry poll() {
+        synchronized (pendingByKey) {
+            Entry entry = queue.poll();
+            if (entry != null && entry.key >= 0) {
+                //taken by the writer, a newer value has to be queued again
+                pendingByKey.remove(entry.key, entry);
+            }
+            return entry;
+        }
+    }
+
+    void completed(Entry entry, long writeStart, long writeEnd, int returnCode) {
+        latency.record(writeEnd - entry.enqueuedNanos);
+        entry.future.complete(CommandResult.written(entry.command, returnCode, writeStart - entry.enqueuedNanos,
+                writeEnd - writeStart, writeEnd));
+    }
+
+    void clear() {
+        synchronized (pendingByKey) {
+            for (Entry entry : queue) {
+                entry.future.complete(CommandResult.failed(entry.command));
+            }
+            queue.clear();
+            pendingByKey.clear();
+        }
+    }
+
+    /**
+     * @param consumer the output report thread, null once the device is closed
+     */
+    void setConsumer(Thread consumer) {
+        this.consumer = consumer;
+    }
+
+    boolean hasConsumer() {
+        return consumer != null;
+    }
+
+    LatencyStats getLatency() {
+        return latency;
+    }
+
+    long getAddedCount() {
+        return addedCount.get();
+    }
+
+    long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    enum Priority {
+        USER,
+        BATCH
+    }
+
+    static final class Entry {
+        private final int key;
+        private final Priority priority;
+        private final long sequence;
+        private final long enqueuedNanos;
+        private volatile DeviceCommand command;
+        private volatile CompletableFuture<CommandResult> future;
+
+        private Entry(DeviceCommand command, CompletableFuture<CommandResult> future, int key, Priority priority,
+                      long sequence, long enqueuedNanos) {
+            this.command = command;
+            this.future = future;
+            this.key = key;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        DeviceCommand getCommand() {
+            return command;
+        }
+    }
+}
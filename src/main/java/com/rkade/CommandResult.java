@@ -0,0 +1,115 @@
+package com.rkade;
+
+import java.util.concurrent.TimeUnit;
+
+public final class CommandResult {
+    private final DeviceCommand command;
+    private final boolean success;
+    private final boolean coalesced;
+    private final boolean confirmed;
+    private final int returnCode;
+    private final long queuedNanos;
+    private final long writeNanos;
+    private final long confirmNanos;
+    private final long writtenAtNanos;
+
+    private CommandResult(DeviceCommand command, boolean success, boolean coalesced, boolean confirmed, int returnCode,
+                          long queuedNanos, long writeNanos, long confirmNanos, long writtenAtNanos) {
+        this.command = command;
+        this.success = success;
+        this.coalesced = coalesced;
+        this.confirmed = confirmed;
+        this.returnCode = returnCode;
+        this.queuedNanos = queuedNanos;
+        this.writeNanos = writeNanos;
+        this.confirmNanos = confirmNanos;
+        this.writtenAtNanos = writtenAtNanos;
+    }
+
+    static CommandResult written(DeviceCommand command, int returnCode, long queuedNanos, long writeNanos,
+                                 long writtenAtNanos) {
+        return new CommandResult(command, returnCode > 0, false, false, returnCode, queuedNanos, writeNanos, 0,
+                writtenAtNanos);
+    }
+
+    static CommandResult failed(DeviceCommand command) {
+        return new CommandResult(command, false, false, false, 0, 0, 0, 0, 0);
+    }
+
+    static CommandResult superseded(DeviceCommand command, CommandResult result) {
+        //this value never reached the device, the newer one did
+        return new CommandResult(command, result.success, true, false, result.returnCode, result.queuedNanos,
+                result.writeNanos, 0, result.writtenAtNanos);
+    }
+
+    CommandResult confirmed(long confirmNanos) {
+        return new CommandResult(command, success, coalesced, true, returnCode, queuedNanos, writeNanos, confirmNanos,
+                writtenAtNanos);
+    }
+
+    public DeviceCommand getCommand() {
+        return command;
+    }
+
+    /**
+     * @return true if the output report was accepted by the device
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * @return true if a newer value for the same setting was written in place of this one
+     */
+    public boolean isCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * @return true if a data report received after the write showed the new value
+     */
+    public boolean isConfirmed() {
+        return confirmed;
+    }
+
+    public int getReturnCode() {
+        return returnCode;
+    }
+
+    public long getQueuedNanos() {
+        return queuedNanos;
+    }
+
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+
+    public long getConfirmNanos() {
+        return confirmNanos;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} when the write was done, 0 if nothing was written
+     */
+    public long getWrittenAtNanos() {
+        return writtenAtNanos;
+    }
+
+    public long getTotalNanos() {
+        return queuedNanos + writeNanos + confirmNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "CommandResult{" +
+                "command=" + command +
+                ", success=" + success +
+                ", coalesced=" + coalesced +
+                ", confirmed=" + confirmed +
+                ", returnCode=" + returnCode +
+                ", queuedUs=" + TimeUnit.NANOSECONDS.toMicros(queuedNanos) +
+                ", writeUs=" + TimeUnit.NANOSECONDS.toMicros(writeNanos) +
+                ", confirmUs=" + TimeUnit.NANOSECONDS.toMicros(confirmNanos) +
+                '}';
+    }
+}
@@ -4,9 +4,9 @@ import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 public class DataReport {
-    protected final byte reportType;
-    protected final short reportIndex;
-    protected final short section;
+    byte reportType;
+    short reportIndex;
+    short section;
 
     public DataReport(byte reportType, byte reportIndex, short section) {
         this.reportType = reportType;
@@ -14,18 +14,48 @@ public class DataReport {
         this.section = section;
     }
 
+    /**
+     * Creates a reusable holder, filled by {@link ReportDecoder} for every report of its type.
+     */
+    DataReport() {
+    }
+
+    final void decode(byte reportType, byte reportIndex, short section, ByteBuffer buffer) {
+        this.reportType = reportType;
+        this.reportIndex = reportIndex;
+        this.section = section;
+        decode(buffer);
+    }
+
+    void decode(ByteBuffer buffer) {
+    }
+
     protected String getString(ByteBuffer buffer, int bytes) {
-        byte[] newArray = new byte[bytes];
-        for (int i = 0; i < bytes; i++) {
-            newArray[i] = buffer.get();
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), bytes, StandardCharsets.ISO_8859_1);
+            buffer.position(buffer.position() + bytes);
+            return value;
         }
+        byte[] newArray = new byte[bytes];
+        buffer.get(newArray);
         return new String(newArray, StandardCharsets.ISO_8859_1);
     }
 
+    protected boolean headerEquals(DataReport other) {
+        return reportType == other.reportType && reportIndex == other.reportIndex && section == other.section;
+    }
+
     public byte getReportType() {
         return reportType;
     }
 
+    /**
+     * @return a copy of this report, which the decoder does not overwrite with the next report
+     */
+    public DataReport snapshot() {
+        return new DataReport(reportType, (byte) reportIndex, section);
+    }
+
     @Override
     public String toString() {
         return "DataReport{" +
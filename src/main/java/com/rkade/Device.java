@@ -4,14 +4,15 @@ import com.fazecast.jSerialComm.SerialPort;
 import io.github.libsdl4j.api.haptic.SDL_Haptic;
 import io.github.libsdl4j.api.haptic.SDL_HapticEffect;
 import io.github.libsdl4j.api.joystick.SDL_Joystick;
-import purejavahidapi.HidDevice;
-
-import javax.swing.*;
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
 import java.util.logging.Logger;
 
 import static io.github.libsdl4j.api.Sdl.SDL_Init;
@@ -25,6 +26,7 @@ public class Device {
     public static final byte CMD_REPORT_ID = 15;
     public static final byte DATA_REPORT_ID = 16;
     public static final byte DATA_REPORT_VALUE_COUNT = 31;
+    public static final byte AXIS_COUNT = 7;
     public static final byte CMD_GET_VER = 1;
     public static final byte CMD_GET_STEER = 2;
     public static final byte CMD_GET_ANALOG = 3;
@@ -70,11 +72,12 @@ public class Device {
     public static final String SUPPORTED_FIRMWARE_TYPE = "RKADE";
     private static final Logger logger = Logger.getLogger(Device.class.getName());
     private static final int WAIT_AFTER_EFFECT_UPDATE = 5;
+    private static final int CONFIRM_TIMEOUT = 2000;
+    private static final int VERSION_TIMEOUT = 1000;
     private final String hidPath;
-    private final HidDevice hidDevice;
     private String name;
     private SDL_Haptic hapticJoystick;
-    private SerialPort port;
+    private volatile SerialLink serialLink;
     private String firmwareType;
     private String firmwareVersion;
     private int sineEffectId = -1;
@@ -88,10 +91,17 @@ public class Device {
     private int inertiaEffectId = -1;
     private int damperEffectId = -1;
     private int triangleEffectId = -1;
-
-    public Device(HidDevice hidDevice, String path) {
-        this.hidDevice = hidDevice;
-        this.name = hidDevice.getHidDeviceInfo().getProductString();
+    private final CommandQueue commandQueue = new CommandQueue();
+    private final List<Confirmation> confirmations = new CopyOnWriteArrayList<>();
+    private final List<StateWaiter> stateWaiters = new CopyOnWriteArrayList<>();
+    private final List<ReadBack> readBacks = new CopyOnWriteArrayList<>();
+    //per state section, when the request answered last was sent
+    private final AtomicLongArray answeredNanos = new AtomicLongArray(Integer.SIZE);
+    //only replaced by the input report thread, read by anyone
+    private volatile DeviceState state = DeviceState.EMPTY;
+
+    Device(String path, String name) {
+        this.name = name;
         this.hidPath = path;
     }
 
@@ -111,7 +121,7 @@ public class Device {
         return sendCommand(CMD_CENTER);
     }
 
-    public synchronized boolean setWheelCenterCli() {
+    public boolean setWheelCenterCli() {
         return writeTextToPort(CMD_CENTER_TEXT);
     }
 
@@ -190,67 +200,271 @@ public class Device {
         return setMiscValue(MISC_MPLEX_SHIFTER, value);
     }
 
-    public synchronized boolean setConstantSpring(boolean state) {
+    public boolean setConstantSpring(boolean state) {
         if (state) {
             return writeTextToPort(CMD_SPRING_ON_TEXT);
         }
         return writeTextToPort(CMD_SPRING_OFF_TEXT);
     }
 
-    public synchronized boolean writeTextToPort(String text) {
-        boolean isOpen = port.isOpen();
-        if (!isOpen) {
-            port.setBaudRate(9600);
-            port.setParity(0);
-            port.setNumStopBits(1);
-            port.setNumDataBits(8);
-            isOpen = port.openPort(500);
-        }
-        if (isOpen) {
-            byte[] value = text.getBytes(StandardCharsets.US_ASCII);
-            int ret = port.writeBytes(value, value.length);
-            port.closePort();
-            return (ret > 0);
-        }
-        return false;
-    }
-
-    public synchronized String readVersion() {
-        boolean isOpen = port.isOpen();
-        if (!isOpen) {
-            port.setBaudRate(9600);
-            port.setParity(0);
-            port.setNumStopBits(1);
-            port.setNumDataBits(8);
-            isOpen = port.openPort(500);
-        }
-        if (isOpen) {
-            byte[] value = CMD_VERSION.getBytes(StandardCharsets.US_ASCII);
-            int ret = port.writeBytes(value, value.length);
-            if (ret > 0) {
-                try {
-                    InputStream is = port.getInputStream();
-                    port.setComPortTimeouts(SerialPort.TIMEOUT_READ_SEMI_BLOCKING, 0, 0);
-                    InputStreamReader streamReader = new InputStreamReader(is, StandardCharsets.UTF_8);
-                    BufferedReader bufferedReader = new BufferedReader(streamReader);
-                    return bufferedReader.readLine();
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                } finally {
-                    port.closePort();
-                }
-            }
+    /**
+     * Writes a text command and waits until it is written to the serial port.
+     *
+     * @return true once the command was sent, the firmware does not acknowledge it
+     */
+    public boolean writeTextToPort(String text) {
+        return sendText(text).join();
+    }
+
+    /**
+     * Queues a text command on the serial port, commands are written in call order.
+     *
+     * @return completes with true once the command was written to the port, which only confirms it was sent:
+     * the firmware does not acknowledge text commands
+     */
+    public CompletableFuture<Boolean> sendText(String text) {
+        SerialLink link = serialLink;
+        if (link == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return link.write(text);
+    }
+
+    /**
+     * @return the version line sent by the firmware, null if it does not answer in time
+     */
+    public String readVersion() {
+        SerialLink link = serialLink;
+        if (link == null) {
             return null;
         }
-        return null;
+        try {
+            return link.request(CMD_VERSION, Device::isVersionLine, VERSION_TIMEOUT).join();
+        } catch (CompletionException ex) {
+            logger.warning("No version from " + link.getPort().getSystemPortPath() + ": " + ex.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * @return true for a firmware type and version line like RKADE:1.2, not for other output of the firmware
+     */
+    private static boolean isVersionLine(String line) {
+        return line.split(":", -1).length == 2;
     }
 
-    public synchronized boolean runAutoCenter() {
+    public boolean runAutoCenter() {
         return writeTextToPort(CMD_AUTOCENTER_TEXT);
     }
 
+    public SerialPort getPort() {
+        SerialLink link = serialLink;
+        return link == null ? null : link.getPort();
+    }
+
+    /**
+     * The port is opened on first use and stays open until {@link #closePort()}.
+     */
     public void setPort(SerialPort port) {
-        this.port = port;
+        SerialLink previous = serialLink;
+        serialLink = port == null ? null : new SerialLink(port);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    void closePort() {
+        SerialLink link = serialLink;
+        if (link != null) {
+            link.close();
+        }
+    }
+
+    public LatencyStats getSerialReplyLatency() {
+        SerialLink link = serialLink;
+        return link == null ? null : link.getReplyLatency();
+    }
+
+    CommandQueue getCommandQueue() {
+        return commandQueue;
+    }
+
+    public LatencyStats getCommandLatency() {
+        return commandQueue.getLatency();
+    }
+
+    public long getCommandCount() {
+        return commandQueue.getAddedCount();
+    }
+
+    public long getCoalescedCommandCount() {
+        return commandQueue.getCoalescedCount();
+    }
+
+    /**
+     * Queues a command for the device output thread.
+     *
+     * @return future completed once the output report has been written
+     */
+    public CompletableFuture<CommandResult> submit(DeviceCommand command) {
+        return commandQueue.add(command, CommandQueue.Priority.USER);
+    }
+
+    /**
+     * Queues a command for the device output thread, optionally waiting for a data report to show the new value.
+     * Unconfirmed results complete after a timeout with {@link CommandResult#isConfirmed()} false.
+     */
+    public CompletableFuture<CommandResult> submit(DeviceCommand command, boolean confirm) {
+        return submit(command, confirm, CONFIRM_TIMEOUT);
+    }
+
+    /**
+     * Writes EESAVE, EELOAD or DEFAULT and completes once the device answers with a settings report
+     * requested after the write, the board does not answer while it works on the EEPROM.
+     * Completes unconfirmed if the device is not back within the timeout.
+     */
+    public CompletableFuture<CommandResult> submitStorageCommand(byte command, long timeoutMillis) {
+        if (command != CMD_EESAVE && command != CMD_EELOAD && command != CMD_DEFAULT) {
+            throw new IllegalArgumentException("Not a storage command:" + command);
+        }
+        return submit(new DeviceCommand(command), true, timeoutMillis);
+    }
+
+    private CompletableFuture<CommandResult> submit(DeviceCommand command, boolean confirm, long timeoutMillis) {
+        CompletableFuture<CommandResult> written = submit(command);
+        if (!confirm || !command.isConfirmable()) {
+            return written;
+        }
+        return written.thenCompose(result -> {
+            if (!result.isSuccess() || result.isCoalesced()) {
+                return CompletableFuture.completedFuture(result);
+            }
+            Confirmation confirmation = new Confirmation(result, result.getWrittenAtNanos());
+            confirmations.add(confirmation);
+            return confirmation.future
+                    .completeOnTimeout(result, timeoutMillis, TimeUnit.MILLISECONDS)
+                    .whenComplete((r, ex) -> confirmations.remove(confirmation));
+        });
+    }
+
+    /**
+     * Writes only the settings that differ from the last known state, as one pipelined batch.
+     * User writes made meanwhile still go ahead of the batch.
+     *
+     * @param save also store the settings in EEPROM once they are written
+     * @return future completed when every command of the batch has been written
+     */
+    public CompletableFuture<List<CommandResult>> applyConfig(DeviceConfig target, boolean save) {
+        List<DeviceCommand> changes = getConfig().diff(target);
+        if (save) {
+            changes.add(new DeviceCommand(CMD_EESAVE));
+        }
+        long start = System.nanoTime();
+        List<CompletableFuture<CommandResult>> futures = new ArrayList<>(changes.size());
+        for (DeviceCommand command : changes) {
+            futures.add(commandQueue.add(command, CommandQueue.Priority.BATCH));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> {
+            List<CommandResult> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<CommandResult> future : futures) {
+                results.add(future.join());
+            }
+            logger.info("Applied " + results.size() + " of " + target.size() + " settings in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+            return results;
+        });
+    }
+
+    /**
+     * @return the configuration shown by the last reports received, only holding the sections already reported
+     */
+    public DeviceConfig getConfig() {
+        return state.toConfig();
+    }
+
+    /**
+     * @return consistent snapshot of the latest reports, never null
+     */
+    public DeviceState getState() {
+        return state;
+    }
+
+    /**
+     * @return future completed with the first state, the current one included, that matches;
+     * failed with a TimeoutException when none does in time
+     */
+    public CompletableFuture<DeviceState> awaitState(Predicate<DeviceState> condition, long timeoutMillis) {
+        StateWaiter waiter = new StateWaiter(condition);
+        stateWaiters.add(waiter);
+        //checked after registering, so a report arriving in between is not missed
+        waiter.check(state);
+        return waiter.future
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((s, ex) -> stateWaiters.remove(waiter));
+    }
+
+    /**
+     * Like {@link #awaitState}, but only states whose sections were all answered by requests sent
+     * after sinceNanos count, so nothing reported before a write can pass for its read back.
+     * Sections that are not polled are never answered.
+     *
+     * @param mask sections to read back, see {@link DeviceState#SETTINGS}
+     */
+    public CompletableFuture<DeviceState> awaitReadBack(int mask, long sinceNanos, Predicate<DeviceState> condition,
+                                                        long timeoutMillis) {
+        ReadBack readBack = new ReadBack(mask, sinceNanos, new StateWaiter(condition));
+        readBacks.add(readBack);
+        checkReadBack(readBack);
+        return readBack.waiter.future
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((s, ex) -> readBacks.remove(readBack));
+    }
+
+    /**
+     * Called for every answer to a get report request, also the ones dropped as unchanged,
+     * once the state holds what it reported.
+     *
+     * @param mask           section the answer belongs to
+     * @param requestedNanos when the request it answers was sent, 0 if unknown
+     */
+    void onAnswer(int mask, long requestedNanos) {
+        if (mask == 0 || requestedNanos == 0) {
+            return;
+        }
+        answeredNanos.accumulateAndGet(Integer.numberOfTrailingZeros(mask), requestedNanos,
+                (last, requested) -> requested - last > 0 ? requested : last);
+        for (ReadBack readBack : readBacks) {
+            checkReadBack(readBack);
+        }
+    }
+
+    private void checkReadBack(ReadBack readBack) {
+        for (int bits = readBack.mask; bits != 0; bits &= bits - 1) {
+            if (answeredNanos.get(Integer.numberOfTrailingZeros(bits)) - readBack.sinceNanos <= 0) {
+                return;
+            }
+        }
+        readBack.waiter.check(state);
+    }
+
+    /**
+     * @param requestedNanos when the request this report answers was sent, 0 if unknown
+     */
+    void onReport(DataReport report, long requestedNanos) {
+        DeviceState previous = state;
+        state = previous.with(report);
+        if (state != previous) {
+            for (StateWaiter waiter : stateWaiters) {
+                waiter.check(state);
+            }
+        }
+        for (Confirmation confirmation : confirmations) {
+            //an answer arriving after the write may still be to a request sent before it
+            if (requestedNanos - confirmation.writtenNanos > 0
+                    && confirmation.written.getCommand().isConfirmedBy(report)) {
+                confirmation.future.complete(confirmation.written.confirmed(System.nanoTime() - confirmation.writtenNanos));
+            }
+        }
     }
 
     private boolean sendCommand(byte command) {
@@ -265,46 +479,34 @@ public class Device {
         return sendCommand(command, arg1, arg2, (byte) 0);
     }
 
+    /**
+     * Queues the command without waiting for it, the setters are called on the event thread for every
+     * slider and spinner change. A write that fails later is logged, use {@link #submit(DeviceCommand)}
+     * to wait for the result.
+     *
+     * @return false if the device is not attached, so nothing would write the command
+     */
     private boolean sendCommand(byte command, short arg1, short arg2, short arg3) {
-        final boolean[] status = {true};
-        //TODO: this will not work with CLI only invocation
-        SwingWorker<Void, Void> worker = new SwingWorker<>() {
-            public Void doInBackground() {
-                byte[] data = new byte[7];
-                data[0] = command;
-                data[1] = getFirstByte(arg1);
-                data[2] = getSecondByte(arg1);
-
-                data[3] = getFirstByte(arg2);
-                data[4] = getSecondByte(arg2);
-
-                data[5] = getFirstByte(arg3);
-                data[6] = getSecondByte(arg3);
-
-                int ret = hidDevice.setOutputReport(CMD_REPORT_ID, data, 7);
-                if (ret <= 0) {
-                    logger.severe("Device returned error on Save:" + ret);
-                    status[0] = false;
-                }
-                return null;
+        if (!commandQueue.hasConsumer()) {
+            return false;
+        }
+        DeviceCommand deviceCommand = new DeviceCommand(command, arg1, arg2, arg3);
+        submit(deviceCommand).whenComplete((result, ex) -> {
+            if (ex != null || !result.isSuccess()) {
+                logger.warning("Command failed:" + deviceCommand);
             }
-        };
-        worker.execute();
-        return status[0];
-    }
-
-    private byte getFirstByte(short value) {
-        return (byte) (value & 0xff);
-    }
-
-    private byte getSecondByte(short value) {
-        return (byte) ((value >> 8) & 0xff);
+        });
+        return true;
     }
 
     public String getName() {
         return name;
     }
 
+    public String getHidPath() {
+        return hidPath;
+    }
+
     public void setName(String name) {
         this.name = name;
     }
@@ -579,4 +781,30 @@ public class Device {
         effect.writeField("type", (short) type);
         return effect;
     }
+
+    private record StateWaiter(Predicate<DeviceState> condition, CompletableFuture<DeviceState> future) {
+        private StateWaiter(Predicate<DeviceState> condition) {
+            this(condition, new CompletableFuture<>());
+        }
+
+        private void check(DeviceState state) {
+            if (!future.isDone() && condition.test(state)) {
+                future.complete(state);
+            }
+        }
+    }
+
+    private record ReadBack(int mask, long sinceNanos, StateWaiter waiter) {
+    }
+
+    private static final class Confirmation {
+        private final CommandResult written;
+        private final long writtenNanos;
+        private final CompletableFuture<CommandResult> future = new CompletableFuture<>();
+
+        private Confirmation(CommandResult written, long writtenNanos) {
+            this.written = written;
+            this.writtenNanos = writtenNanos;
+        }
+    }
 }
@@ -0,0 +1,175 @@
+package com.rkade;
+
+import java.util.Objects;
+
+public final class DeviceCommand {
+    private final byte command;
+    private final short arg1;
+    private final short arg2;
+    private final short arg3;
+
+    public DeviceCommand(byte command) {
+        this(command, (short) 0, (short) 0, (short) 0);
+    }
+
+    public DeviceCommand(byte command, short arg1) {
+        this(command, arg1, (short) 0, (short) 0);
+    }
+
+    public DeviceCommand(byte command, short arg1, short arg2) {
+        this(command, arg1, arg2, (short) 0);
+    }
+
+    public DeviceCommand(byte command, short arg1, short arg2, short arg3) {
+        this.command = command;
+        this.arg1 = arg1;
+        this.arg2 = arg2;
+        this.arg3 = arg3;
+    }
+
+    public byte getCommand() {
+        return command;
+    }
+
+    public short getArg1() {
+        return arg1;
+    }
+
+    public short getArg2() {
+        return arg2;
+    }
+
+    public short getArg3() {
+        return arg3;
+    }
+
+    /**
+     * Writes with the same key set the same value, so a pending one may be replaced by a newer one.
+     *
+     * @return key of the value this command sets, or -1 if every write of it has to reach the device
+     */
+    int getCoalesceKey() {
+        return switch (command) {
+            case Device.CMD_SET_GAIN, Device.CMD_SET_MISC, Device.CMD_SET_AALIMITS, Device.CMD_SET_AACENTER,
+                 Device.CMD_SET_AADZ, Device.CMD_SET_AAAUTOLIM, Device.CMD_SET_ODTRIM ->
+                    (command << 16) | (arg1 & 0xffff);
+            case Device.CMD_SET_RANGE, Device.CMD_SET_SHIFT_BTN, Device.CMD_SET_DEBOUNCE, Device.CMD_WHEEL_LIMITS,
+                 Device.CMD_WHEEL_CENTER, Device.CMD_WHEEL_DZ, Device.CMD_WHEEL_AUTO_LIMIT, Device.CMD_WHEEL_TRIM,
+                 Device.CMD_WHEEL_INVERT -> command << 16;
+            default -> -1;
+        };
+    }
+
+    /**
+     * @return true if the given report shows the value set by this command
+     */
+    boolean isConfirmedBy(DataReport report) {
+        if (isStorageCommand()) {
+            //any settings report the device answers once it is done with the EEPROM
+            return report instanceof GainsDataReport || report instanceof MiscDataReport;
+        }
+        return switch (report) {
+            case WheelDataReport wheel -> switch (command) {
+                case Device.CMD_SET_RANGE -> wheel.getRange() == arg1;
+                case Device.CMD_WHEEL_LIMITS -> wheel.getMin() == arg1 && wheel.getMax() == arg2;
+                case Device.CMD_WHEEL_CENTER -> wheel.getCenter() == arg1;
+                case Device.CMD_WHEEL_DZ -> wheel.getDeadZone() == arg1;
+                case Device.CMD_WHEEL_AUTO_LIMIT -> wheel.isAutoLimit() == (arg1 == 1);
+                case Device.CMD_WHEEL_TRIM -> wheel.getTrim() == arg1;
+                case Device.CMD_WHEEL_INVERT -> wheel.isInvertRotation() == (arg1 == 1);
+                default -> false;
+            };
+            case AxisDataReport axis -> axis.getAxis() - 1 == arg1 && switch (command) {
+                case Device.CMD_SET_AALIMITS -> axis.getMin() == arg2 && axis.getMax() == arg3;
+                case Device.CMD_SET_AACENTER -> arg2 == Short.MIN_VALUE ? !axis.isHasCenter() : axis.getCenter() == arg2;
+                case Device.CMD_SET_AADZ -> axis.getDeadZone() == arg2;
+                case Device.CMD_SET_AAAUTOLIM -> axis.isAutoLimit() == (arg2 == 1);
+                //enabled is sent inverted, as a disabled flag
+                case Device.CMD_SET_ODTRIM -> axis.isEnabled() == (arg2 == 0) && axis.getTrim() == arg3;
+                default -> false;
+            };
+            case GainsDataReport gains -> command == Device.CMD_SET_GAIN && gains.getGainValue(arg1) == arg2;
+            case MiscDataReport misc -> command == Device.CMD_SET_MISC && switch (arg1) {
+                case Device.MISC_MAXVD -> misc.getMaxVd() == arg2;
+                case Device.MISC_MAXVF -> misc.getMaxVf() == arg2;
+                case Device.MISC_MAXACC -> misc.getMaxAcc() == arg2;
+                case Device.MISC_MINF -> misc.getMinForce() == arg2;
+                case Device.MISC_MAXF -> misc.getMaxForce() == arg2;
+                case Device.MISC_CUTF -> misc.getCutForce() == arg2;
+                case Device.MISC_FFBBD -> misc.getFfbBitDepth() == arg2;
+                case Device.MISC_CONSTANT_SPRING -> misc.isConstantSpring() == (arg2 != 0);
+                case Device.MISC_AFC_STARTUP -> misc.isAutoCenterOnStartup() == (arg2 != 0);
+                default -> false;
+            };
+            case ButtonsDataReport buttons -> switch (command) {
+                case Device.CMD_SET_SHIFT_BTN -> buttons.getShiftButton() == arg1;
+                case Device.CMD_SET_DEBOUNCE -> buttons.getDebounce() == (arg1 & 0xff);
+                case Device.CMD_SET_MISC ->
+                        arg1 == Device.MISC_MPLEX_SHIFTER && buttons.isMultiplexShifterButtons() == (arg2 != 0);
+                default -> false;
+            };
+            default -> false;
+        };
+    }
+
+    /**
+     * @return true if some data report shows the value set by this command
+     */
+    boolean isConfirmable() {
+        return switch (command) {
+            case Device.CMD_SET_MISC -> arg1 != Device.MISC_ENDSTOP;
+            case Device.CMD_EESAVE, Device.CMD_EELOAD, Device.CMD_DEFAULT -> true;
+            default -> getCoalesceKey() >= 0;
+        };
+    }
+
+    private boolean isStorageCommand() {
+        return command == Device.CMD_EESAVE || command == Device.CMD_EELOAD || command == Device.CMD_DEFAULT;
+    }
+
+    void toOutputReport(byte[] data) {
+        data[0] = command;
+        data[1] = getFirstByte(arg1);
+        data[2] = getSecondByte(arg1);
+
+        data[3] = getFirstByte(arg2);
+        data[4] = getSecondByte(arg2);
+
+        data[5] = getFirstByte(arg3);
+        data[6] = getSecondByte(arg3);
+    }
+
+    private static byte getFirstByte(short value) {
+        return (byte) (value & 0xff);
+    }
+
+    private static byte getSecondByte(short value) {
+        return (byte) ((value >> 8) & 0xff);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DeviceCommand that)) {
+            return false;
+        }
+        return command == that.command && arg1 == that.arg1 && arg2 == that.arg2 && arg3 == that.arg3;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(command, arg1, arg2, arg3);
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceCommand{" +
+                "command=" + command +
+                ", arg1=" + arg1 +
+                ", arg2=" + arg2 +
+                ", arg3=" + arg3 +
+                '}';
+    }
+}
@@ -0,0 +1,147 @@
+package com.rkade;
+
+import java.util.*;
+
+/**
+ * A device configuration held as the set commands that produce it, one per setting.
+ */
+public final class DeviceConfig {
+    public static final int GAIN_COUNT = 12;
+    private final Map<Integer, DeviceCommand> commands;
+
+    private DeviceConfig(Map<Integer, DeviceCommand> commands) {
+        this.commands = commands;
+    }
+
+    public static DeviceConfig empty() {
+        return new DeviceConfig(Collections.emptyMap());
+    }
+
+    /**
+     * Builds the configuration shown by the given reports, any of them may be null when not yet received.
+     */
+    public static DeviceConfig fromReports(WheelDataReport wheel, AxisDataReport[] axes, GainsDataReport gains,
+                                           MiscDataReport misc, ButtonsDataReport buttons) {
+        List<DeviceCommand> list = new ArrayList<>();
+        if (wheel != null) {
+            list.add(new DeviceCommand(Device.CMD_SET_RANGE, wheel.getRange()));
+            list.add(new DeviceCommand(Device.CMD_WHEEL_LIMITS, wheel.getMin(), wheel.getMax()));
+            list.add(new DeviceCommand(Device.CMD_WHEEL_CENTER, wheel.getCenter()));
+            list.add(new DeviceCommand(Device.CMD_WHEEL_DZ, wheel.getDeadZone()));
+            list.add(new DeviceCommand(Device.CMD_WHEEL_AUTO_LIMIT, toShort(wheel.isAutoLimit())));
+            list.add(new DeviceCommand(Device.CMD_WHEEL_TRIM, wheel.getTrim()));
+            list.add(new DeviceCommand(Device.CMD_WHEEL_INVERT, toShort(wheel.isInvertRotation())));
+        }
+        if (axes != null) {
+            for (AxisDataReport axis : axes) {
+                if (axis != null) {
+                    short index = (short) (axis.getAxis() - 1);
+                    list.add(new DeviceCommand(Device.CMD_SET_AALIMITS, index, axis.getMin(), axis.getMax()));
+                    list.add(new DeviceCommand(Device.CMD_SET_AACENTER, index,
+                            axis.isHasCenter() ? axis.getCenter() : Short.MIN_VALUE));
+                    list.add(new DeviceCommand(Device.CMD_SET_AADZ, index, axis.getDeadZone()));
+                    list.add(new DeviceCommand(Device.CMD_SET_AAAUTOLIM, index, toShort(axis.isAutoLimit())));
+                    //enabled is sent inverted, as a disabled flag
+                    list.add(new DeviceCommand(Device.CMD_SET_ODTRIM, index, toShort(!axis.isEnabled()), axis.getTrim()));
+                }
+            }
+        }
+        if (gains != null) {
+            for (short i = 0; i < GAIN_COUNT; i++) {
+                list.add(new DeviceCommand(Device.CMD_SET_GAIN, i, gains.getGainValue(i)));
+            }
+        }
+        if (misc != null) {
+            list.add(new DeviceCommand(Device.CMD_SET_MISC, Device.MISC_MAXVD, misc.getMaxVd()));
+            list.add(new DeviceCommand(Device.CMD_SET_MISC, Device.MISC_MAXVF, misc.getMaxVf()));
+            list.add(new DeviceCommand(Device.CMD_SET_MISC, Device.MISC_MAXACC, misc.getMaxAcc()));
+            list.add(new DeviceCommand(Device.CMD_SET_MISC, Device.MISC_MINF, misc.getMinForce()));
+            list.add(new DeviceCommand(Device.CMD_SET_MISC, Device.MISC_MAXF, misc.getMaxForce()));
+            list.add(new DeviceCommand(Device.CMD_SET_MISC, Device.MISC_CUTF, misc.getCutForce()));
+            list.add(new DeviceCommand(Device.CMD_SET_MISC, Device.MISC_FFBBD, misc.getFfbBitDepth()));
+            list.add(new DeviceCommand(Device.CMD_SET_MISC, Device.MISC_CONSTANT_SPRING, toShort(misc.isConstantSpring())));
+            list.add(new DeviceCommand(Device.CMD_SET_MISC, Device.MISC_AFC_STARTUP, toShort(misc.isAutoCenterOnStartup())));
+        }
+        if (buttons != null) {
+            list.add(new DeviceCommand(Device.CMD_SET_DEBOUNCE, (short) buttons.getDebounce()));
+            list.add(new DeviceCommand(Device.CMD_SET_SHIFT_BTN, buttons.getShiftButton()));
+            list.add(new DeviceCommand(Device.CMD_SET_MISC, Device.MISC_MPLEX_SHIFTER,
+                    toShort(buttons.isMultiplexShifterButtons())));
+        }
+        return empty().with(list);
+    }
+
+    private static short toShort(boolean value) {
+        return (short) (value ? 1 : 0);
+    }
+
+    /**
+     * @return a copy of this configuration with the setting of the given command replaced
+     */
+    public DeviceConfig with(DeviceCommand command) {
+        return with(List.of(command));
+    }
+
+    public DeviceConfig with(Collection<DeviceCommand> settings) {
+        Map<Integer, DeviceCommand> copy = new LinkedHashMap<>(commands);
+        for (DeviceCommand command : settings) {
+            int key = command.getCoalesceKey();
+            if (key < 0) {
+                throw new IllegalArgumentException("Not a setting:" + command);
+            }
+            copy.put(key, command);
+        }
+        return new DeviceConfig(Collections.unmodifiableMap(copy));
+    }
+
+    public Collection<DeviceCommand> getCommands() {
+        return commands.values();
+    }
+
+    /**
+     * @return the command for the same setting as the given one, or null if this configuration does not hold it
+     */
+    public DeviceCommand get(DeviceCommand setting) {
+        return commands.get(setting.getCoalesceKey());
+    }
+
+    public int size() {
+        return commands.size();
+    }
+
+    /**
+     * @return the commands needed to turn this configuration into the target, in target order
+     */
+    public List<DeviceCommand> diff(DeviceConfig target) {
+        List<DeviceCommand> changes = new ArrayList<>();
+        for (Map.Entry<Integer, DeviceCommand> entry : target.commands.entrySet()) {
+            if (!entry.getValue().equals(commands.get(entry.getKey()))) {
+                changes.add(entry.getValue());
+            }
+        }
+        return changes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DeviceConfig that)) {
+            return false;
+        }
+        return commands.equals(that.commands);
+    }
+
+    @Override
+    public int hashCode() {
+        return commands.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceConfig{" +
+                "commands=" + commands.values() +
+                '}';
+    }
+}
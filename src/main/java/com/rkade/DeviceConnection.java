@@ -0,0 +1,254 @@
+package com.rkade;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import static com.rkade.Device.DATA_REPORT_ID;
+
+/**
+ * One opened device: its transport, the poll plan, the output report loop on its own
+ * virtual thread and the input report path. Every attached device has its own.
+ */
+final class DeviceConnection implements Runnable {
+    private final static Logger logger = Logger.getLogger(DeviceConnection.class.getName());
+    private final static int OUTPUT_REPORT_DATA_LENGTH = 7;
+    private final static int WHEEL_POLL_PERIOD = 5;
+    private final static int ANALOG_POLL_PERIOD = 20;
+    private final static int BUTTONS_POLL_PERIOD = 20;
+    private final static int CONFIG_POLL_PERIOD = 1000;
+    private final static int VERSION_POLL_PERIOD = 500;
+    private final static long STATISTICS_LOG_PERIOD = 10_000_000_000L;
+    private final static ThreadLocal<ReportDecoder> reportDecoder = ThreadLocal.withInitial(ReportDecoder::new);
+    private final Device device;
+    private final DeviceTransport transport;
+    private final Consumer<DeviceConnection> onRemoval;
+    private final PollScheduler pollScheduler = createPollScheduler();
+    private final ReportChangeFilter reportChangeFilter = new ReportChangeFilter();
+    private volatile boolean versionReported = false;
+    private volatile boolean closed = false;
+    private volatile Thread outputReportThread = null;
+    private volatile DeviceTransport.InputReportListener reportTap = null;
+
+    /**
+     * Listens to the transport right away, so nothing is missed once it is opened.
+     *
+     * @param onRemoval called once when the device goes away
+     */
+    DeviceConnection(Device device, DeviceTransport transport, Consumer<DeviceConnection> onRemoval) {
+        this.device = device;
+        this.transport = transport;
+        this.onRemoval = onRemoval;
+        transport.setRemovalListener(this::close);
+        transport.setInputReportListener(this::dispatchInputReport);
+    }
+
+    private static PollScheduler createPollScheduler() {
+        PollScheduler.Tier live = PollScheduler.Tier.LIVE;
+        PollScheduler.Tier config = PollScheduler.Tier.CONFIG;
+        List<PollScheduler.PollEntry> entries = new ArrayList<>();
+        entries.add(new PollScheduler.PollEntry(Device.CMD_GET_VER, (byte) 0, config, VERSION_POLL_PERIOD));
+        entries.add(new PollScheduler.PollEntry(Device.CMD_GET_STEER, (byte) 0, live, WHEEL_POLL_PERIOD));
+        for (byte i = 0; i < Device.AXIS_COUNT; i++) {
+            entries.add(new PollScheduler.PollEntry(Device.CMD_GET_ANALOG, i, live, ANALOG_POLL_PERIOD));
+        }
+        entries.add(new PollScheduler.PollEntry(Device.CMD_GET_BUTTONS, (byte) 0, live, BUTTONS_POLL_PERIOD));
+        entries.add(new PollScheduler.PollEntry(Device.CMD_GET_GAINS, (byte) 0, config, CONFIG_POLL_PERIOD));
+        entries.add(new PollScheduler.PollEntry(Device.CMD_GET_MISC, (byte) 0, config, CONFIG_POLL_PERIOD));
+        return new PollScheduler(entries.toArray(new PollScheduler.PollEntry[0]));
+    }
+
+    /**
+     * @param subscribedReports reports to poll, null for all of them
+     */
+    void start(Set<Byte> subscribedReports) {
+        if (subscribedReports != null) {
+            pollScheduler.setSubscribed(subscribedReports);
+        }
+        outputReportThread = Thread.ofVirtual().name("poll " + device.getName()).unstarted(this);
+        device.getCommandQueue().setConsumer(outputReportThread);
+        outputReportThread.start();
+    }
+
+    Device getDevice() {
+        return device;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void setSubscribedReports(Set<Byte> commands) {
+        pollScheduler.setSubscribed(commands);
+        //newly shown panels need the current values even if nothing changed
+        reportChangeFilter.invalidate();
+        wakeUp();
+    }
+
+    void invalidateReports() {
+        reportChangeFilter.invalidate();
+    }
+
+    PollScheduler getPollScheduler() {
+        return pollScheduler;
+    }
+
+    ReportChangeFilter getReportChangeFilter() {
+        return reportChangeFilter;
+    }
+
+    DeviceTransport getTransport() {
+        return transport;
+    }
+
+    void setReportTap(DeviceTransport.InputReportListener tap) {
+        reportTap = tap;
+    }
+
+    void dispatchInputReport(byte id, byte[] data, int len) {
+        DeviceTransport.InputReportListener tap = reportTap;
+        if (tap != null) {
+            tap.onInputReport(id, data, len);
+        }
+        if (id == DATA_REPORT_ID) {
+            long requestedNanos = 0;
+            int mask = 0;
+            if (len >= 3) {
+                short section = (short) ((data[1] & 0xff) | (data[2] << 8));
+                requestedNanos = pollScheduler.getRequestedNanos(data[0], section);
+                mask = DeviceState.maskOf(data[0], section);
+                if (pollScheduler.onResponse(data[0], section, len, System.nanoTime())) {
+                    wakeUp();
+                }
+            }
+            //most config and idle axis reports repeat byte for byte, nothing to parse or show
+            if (!reportChangeFilter.isChanged(data, len)) {
+                //still reads back what the state already holds
+                device.onAnswer(mask, requestedNanos);
+                return;
+            }
+            //decoded into reused holders owned by this callback thread
+            DataReport report = reportDecoder.get().decode(id, data, len);
+            if (report != null) {
+                device.onReport(report, requestedNanos);
+            }
+            device.onAnswer(mask, requestedNanos);
+            DeviceManager.notifyListenersDeviceUpdated(device, null, report);
+            if (report instanceof VersionDataReport) {
+                versionReported = true;
+            }
+        }
+    }
+
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        logger.info("device removed: " + device.getName());
+        pollScheduler.reset();
+        reportChangeFilter.invalidate();
+        device.getCommandQueue().setConsumer(null);
+        device.getCommandQueue().clear();
+        device.closePort();
+        //a transport that reported its removal itself comes back here and returns above
+        transport.close();
+        wakeUp();
+        onRemoval.accept(this);
+    }
+
+    private void wakeUp() {
+        Thread thread = outputReportThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void getOutputReport(byte dataType, byte dataIndex, byte[] data) throws IOException {
+        data[0] = dataType;
+        data[1] = dataIndex;
+        int ret = transport.setOutputReport(Device.CMD_REPORT_ID, data, OUTPUT_REPORT_DATA_LENGTH);
+        if (ret <= 0) {
+            throw new IOException("Device returned error for dataType:" + dataType + " dataIndex:" + dataIndex);
+        }
+    }
+
+    private int sendCommand(DeviceCommand command, byte[] data) {
+        command.toOutputReport(data);
+        int ret = transport.setOutputReport(Device.CMD_REPORT_ID, data, OUTPUT_REPORT_DATA_LENGTH);
+        if (ret <= 0) {
+            logger.severe("Device returned error for command:" + command + " ret:" + ret);
+        }
+        return ret;
+    }
+
+    @Override
+    public void run() {
+        int failCount = 0;
+        long lastStatistics = System.nanoTime();
+        byte[] pollData = new byte[OUTPUT_REPORT_DATA_LENGTH];
+        byte[] commandData = new byte[OUTPUT_REPORT_DATA_LENGTH];
+        CommandQueue commandQueue = device.getCommandQueue();
+        while (!closed) {
+            if (System.nanoTime() - lastStatistics > STATISTICS_LOG_PERIOD) {
+                lastStatistics = System.nanoTime();
+                logger.fine(device.getName() + " poll statistics: " + pollScheduler.getStatistics());
+                logger.fine(device.getName() + " report filter: " + reportChangeFilter.getStatistics());
+                logger.fine(device.getName() + " transport: " + transport.getStats());
+                logger.fine(device.getName() + " command latency: " + device.getCommandLatency()
+                        + " commands=" + device.getCommandCount()
+                        + " coalesced=" + device.getCoalescedCommandCount());
+            }
+            if (!commandQueue.isEmpty()) {
+                //writes always go ahead of polling, paced like every other output report
+                long waitNanos = pollScheduler.nanosUntilPaced(System.nanoTime());
+                if (waitNanos > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                    continue;
+                }
+                CommandQueue.Entry command = commandQueue.poll();
+                if (command != null) {
+                    long writeStart = System.nanoTime();
+                    pollScheduler.onSendingCommand(writeStart);
+                    int ret = sendCommand(command.getCommand(), commandData);
+                    //settings were written, read the config reports back right away
+                    pollScheduler.refresh(PollScheduler.Tier.CONFIG);
+                    commandQueue.completed(command, writeStart, System.nanoTime(), ret);
+                    //an unchanged read back still has to confirm the write, so only after confirmations are waiting
+                    reportChangeFilter.invalidate();
+                }
+                continue;
+            }
+            //only need to do this once
+            pollScheduler.setEnabled(Device.CMD_GET_VER, !versionReported);
+            PollScheduler.PollEntry entry = pollScheduler.nextEntry();
+            if (entry == null) {
+                LockSupport.parkNanos(500_000_000L);
+                continue;
+            }
+            long waitNanos = pollScheduler.nanosUntilSend(entry, System.nanoTime());
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+                continue;
+            }
+            try {
+                pollScheduler.onSending(entry, System.nanoTime());
+                getOutputReport(entry.getCommand(), entry.getIndex(), pollData);
+                failCount = 0;
+            } catch (IOException ex) {
+                ++failCount;
+                if (failCount > 3) {
+                    close();
+                }
+                logger.warning(ex.getMessage());
+                LockSupport.parkNanos(250_000_000L);
+            }
+        }
+    }
+}
@@ -1,226 +1,472 @@
 package com.rkade;
 
 import com.fazecast.jSerialComm.SerialPort;
-import purejavahidapi.*;
+import purejavahidapi.HidDeviceInfo;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.logging.Logger;
 
-import static com.rkade.Device.DATA_REPORT_ID;
-
-public final class DeviceManager implements InputReportListener, DeviceRemovalListener {
+public final class DeviceManager {
     private final static Logger logger = Logger.getLogger(DeviceManager.class.getName());
     private final static int LEONARDO_VENDOR_ID = 0x2341;
     private final static int LEONARDO_PRODUCT_ID = 0x8036;
-    private final static int OUTPUT_REPORT_DATA_LENGTH = 7;
-    private final static int SLEEP_BETWEEN_OUTPUT_REPORT = 10;
-    private final static byte AXIS_COUNT = 7;
-    private final static List<DeviceListener> deviceListeners = Collections.synchronizedList(new ArrayList<>());
+    private final static int SCAN_PERIOD = 2000;
+    //while hotplug events arrive polling is only a safety net
+    private final static int HOTPLUG_SCAN_PERIOD = 30000;
+    //a fresh hidraw node may not be accessible until udev has set its permissions
+    private final static int HOTPLUG_RETRY_DELAY = 25;
+    private final static Semaphore hotplugSignal = new Semaphore(0);
+    private final static ExecutorService discoveryExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final static Map<String, IndexedDevice> deviceIndex = new ConcurrentHashMap<>();
+    private final static LatencyStats coldAttachLatency = new LatencyStats();
+    private final static LatencyStats warmAttachLatency = new LatencyStats();
+    private final static ListenerRegistry deviceListeners = new ListenerRegistry();
     private final static Map<String, Device> deviceMap = Collections.synchronizedMap(new HashMap<>());
-    private static volatile boolean deviceAttached = false;
-    private static volatile boolean versionReported = false;
-    private static volatile HidDeviceInfo deviceInfo = null;
-    private static volatile HidDevice openedDevice = null;
+    private final static Map<String, DeviceConnection> connections = new ConcurrentHashMap<>();
+    //null until the ui picks, every report is polled then
+    private static volatile Set<Byte> subscribedReports = null;
 
     public DeviceManager(DeviceListener listener) {
         addDeviceListener(listener);
         new Thread(new ConnectionRunner()).start();
-        new Thread(new OutputReportRunner()).start();
     }
 
     private static void notifyListenersDeviceAttached(Device device) {
-        for (DeviceListener deviceListener : deviceListeners) {
-            deviceListener.deviceAttached(device);
-        }
+        deviceListeners.notifyAttached(device);
     }
 
     private static void notifyListenersDeviceDetached(Device device) {
-        for (DeviceListener deviceListener : deviceListeners) {
-            deviceListener.deviceDetached(device);
+        deviceListeners.notifyDetached(device);
+    }
+
+    static void notifyListenersDeviceUpdated(Device device, String status, DataReport report) {
+        deviceListeners.notifyUpdated(device, status, report);
+    }
+
+    /**
+     * Opens and starts the first device found, so its commands are written. Used by the command line.
+     */
+    public static Device openDevice() {
+        List<DeviceConnection> opened = openDevices();
+        if (opened.isEmpty()) {
+            return null;
         }
+        for (int i = 1; i < opened.size(); i++) {
+            opened.get(i).getTransport().close();
+        }
+        attach(opened.getFirst());
+        return opened.getFirst().getDevice();
     }
 
-    private static void notifyListenersDeviceUpdated(Device device, String status, DataReport report) {
-        for (DeviceListener deviceListener : deviceListeners) {
-            deviceListener.deviceUpdated(device, status, report);
+    /**
+     * @return connections for the devices that are not connected yet, not started
+     */
+    private static List<DeviceConnection> openDevices() {
+        long start = System.nanoTime();
+        //devices seen before are reopened from the index first, without waiting for the enumeration
+        List<DeviceConnection> opened = new ArrayList<>();
+        Set<String> openedPaths = new HashSet<>();
+        for (Map.Entry<String, IndexedDevice> entry : deviceIndex.entrySet()) {
+            if (!connections.containsKey(entry.getKey()) && entry.getValue().isPresent()) {
+                DeviceConnection connection = openHidDevice(entry.getValue().hidInfo(), entry.getValue().serialPort());
+                if (connection != null) {
+                    warmAttachLatency.record(System.nanoTime() - start);
+                    logger.info("device reopened in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+                    opened.add(connection);
+                    openedPaths.add(entry.getKey());
+                }
+            }
         }
+        //other boards may have been plugged in alongside, so the scan still runs for everything else
+        for (DeviceConnection connection : scanDevices(openedPaths)) {
+            coldAttachLatency.record(System.nanoTime() - start);
+            logger.info("device opened in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+            opened.add(connection);
+        }
+        return opened;
     }
 
-    public static Device openDevice() {
-        List<HidDeviceInfo> devList = PureJavaHidApi.enumerateDevices();
-        HidDeviceInfo myHidInfo = null;
-        for (HidDeviceInfo info : devList) {
-            if (info.getVendorId() == LEONARDO_VENDOR_ID && info.getProductId() == LEONARDO_PRODUCT_ID) {
-                deviceInfo = info;
-                myHidInfo = info;
-                break;
+    /**
+     * @param openedPaths HID paths already opened by the caller, skipped like connected ones
+     */
+    private static List<DeviceConnection> scanDevices(Set<String> openedPaths) {
+        //serial enumeration is as slow as the HID one, run both at once
+        CompletableFuture<List<SerialPort>> serialPorts = CompletableFuture.supplyAsync(DeviceManager::findSerialPorts,
+                discoveryExecutor);
+        List<HidDeviceInfo> hidInfos = new ArrayList<>();
+        for (HidDeviceInfo info : HidTransport.enumerate(LEONARDO_VENDOR_ID, LEONARDO_PRODUCT_ID)) {
+            String path = normalizePath(info.getPath());
+            if (!connections.containsKey(path) && !openedPaths.contains(path)) {
+                hidInfos.add(info);
             }
         }
-        if (myHidInfo == null) {
+        List<DeviceConnection> opened = new ArrayList<>();
+        if (hidInfos.isEmpty()) {
+            if (!openedPaths.isEmpty()) {
+                return opened;
+            }
             logger.info("device not found");
-            notifyListenersDeviceUpdated(null, "Device Not Found...", null);
-            sleep(1000);
-        } else {
-            logger.info("device found");
-            notifyListenersDeviceUpdated(null, "Device Found...", null);
-            deviceAttached = true;
-            try {
-                logger.info("opening device...");
-                openedDevice = PureJavaHidApi.openDevice(myHidInfo);
-                if (openedDevice != null) {
-                    openedDevice.open();
-                    Device device = getDevice(openedDevice);
-                    if (device != null) {
-                        SerialPort[] ports = SerialPort.getCommPorts();
-                        for (SerialPort port : ports) {
-                            if (port.getVendorID() == LEONARDO_VENDOR_ID && port.getProductID() == LEONARDO_PRODUCT_ID) {
-                                device.setName(port.getDescriptivePortName());
-                                device.setPort(port);
-                                return device;
-                                /*
-                                String version = device.readVersion();
-                                if (version != null && version.contains(":")) {
-                                    String[] parts = version.split(":");
-                                    if (parts.length == 2) {
-                                        String firmwareType = parts[0];
-                                        if (Device.SUPPORTED_FIRMWARE_TYPE.equalsIgnoreCase(firmwareType)) {
-                                            logger.info("Device Attached");
-                                            device.setFirmwareType(firmwareType);
-                                            device.setFirmwareVersion(parts[1]);
-                                            return device;
-                                        } else {
-                                            notifyListenersDeviceUpdated(null, "Unsupported Firmware", null);
-                                        }
-                                    }
-                                }*/
-                            }
-                        }
-                    } else {
-                        logger.severe("Device could not be obtained");
-                    }
-                    return null;
-                } else {
-                    logger.severe("Device could not be opened");
-                }
-            } catch (IOException ex) {
-                logger.warning(ex.getMessage());
+            if (connections.isEmpty()) {
+                notifyListenersDeviceUpdated(null, "Device Not Found...", null);
+            }
+            return opened;
+        }
+        logger.info(hidInfos.size() + " device(s) found");
+        notifyListenersDeviceUpdated(null, "Device Found...", null);
+        List<SerialPort> ports = serialPorts.join();
+        for (HidDeviceInfo info : hidInfos) {
+            SerialPort port = pairSerialPort(info, ports);
+            if (port == null) {
+                logger.severe("Serial port of device not found: " + info.getPath());
+                continue;
+            }
+            DeviceConnection connection = openHidDevice(info, port);
+            if (connection != null) {
+                opened.add(connection);
             }
         }
-        return null;
+        return opened;
     }
 
-    private static Device getDevice(HidDevice hidDevice) {
-        String path = getHidPath(hidDevice);
-        return deviceMap.computeIfAbsent(path, k -> new Device(hidDevice, path));
+    /**
+     * @return the matching serial ports not used by a connected device yet
+     */
+    private static List<SerialPort> findSerialPorts() {
+        Set<String> used = new HashSet<>();
+        for (DeviceConnection connection : connections.values()) {
+            SerialPort port = connection.getDevice().getPort();
+            if (port != null) {
+                used.add(port.getSystemPortPath());
+            }
+        }
+        List<SerialPort> ports = new ArrayList<>();
+        for (SerialPort port : SerialPort.getCommPorts()) {
+            if (port.getVendorID() == LEONARDO_VENDOR_ID && port.getProductID() == LEONARDO_PRODUCT_ID
+                    && !used.contains(port.getSystemPortPath())) {
+                ports.add(port);
+            }
+        }
+        return ports;
     }
 
-    private static String getHidPath(HidDevice device) {
-        if (device != null) {
-            //hidPath is not null terminated, force to it null-term and uppercase to match SDL case
-            return device.getHidDeviceInfo().getPath().trim().toUpperCase();
+    /**
+     * Takes the serial port of the same board out of ports, matched by USB serial number
+     * when the board reports one, otherwise in enumeration order.
+     */
+    private static SerialPort pairSerialPort(HidDeviceInfo info, List<SerialPort> ports) {
+        String serialNumber = info.getSerialNumberString();
+        if (serialNumber != null && !serialNumber.isBlank()) {
+            for (Iterator<SerialPort> it = ports.iterator(); it.hasNext(); ) {
+                SerialPort port = it.next();
+                if (serialNumber.trim().equalsIgnoreCase(port.getSerialNumber())) {
+                    it.remove();
+                    return port;
+                }
+            }
         }
-        return null;
+        return ports.isEmpty() ? null : ports.removeFirst();
     }
 
-    private static void sleep(int millis) {
+    private static DeviceConnection openHidDevice(HidDeviceInfo info, SerialPort port) {
+        logger.info("opening device...");
+        HidTransport transport = new HidTransport(info, normalizePath(info.getPath()));
+        Device device = getDevice(transport);
+        DeviceConnection connection = new DeviceConnection(device, transport, DeviceManager::onDeviceRemoval);
         try {
-            Thread.sleep(millis);
-        } catch (Exception ex) {
+            transport.open();
+        } catch (IOException ex) {
             logger.warning(ex.getMessage());
+            deviceMap.remove(transport.getPath(), device);
+            return null;
         }
+        device.setName(port.getDescriptivePortName());
+        device.setPort(port);
+        deviceIndex.put(transport.getPath(), new IndexedDevice(info, port));
+        return connection;
+    }
+
+    private static void onDeviceRemoval(DeviceConnection connection) {
+        Device device = connection.getDevice();
+        String path = device.getHidPath();
+        connections.remove(path, connection);
+        deviceMap.remove(path);
+        notifyListenersDeviceDetached(device);
+        //start looking for it again right away
+        hotplugSignal.release();
     }
 
-    public void addDeviceListener(DeviceListener deviceListener) {
-        deviceListeners.add(deviceListener);
+    public static LatencyStats getColdAttachLatency() {
+        return coldAttachLatency;
     }
 
-    @Override
-    public void onDeviceRemoval(HidDevice hidDevice) {
-        logger.info("device removed");
-        deviceAttached = false;
-        versionReported = false;
-        deviceInfo = null;
-        openedDevice = null;
-        Device device = getDevice(hidDevice);
-        deviceMap.remove(getHidPath(hidDevice));
-        notifyListenersDeviceDetached(device);
+    public static LatencyStats getWarmAttachLatency() {
+        return warmAttachLatency;
+    }
+
+    /**
+     * @return the devices currently attached and polled
+     */
+    public static List<Device> getAttachedDevices() {
+        List<Device> devices = new ArrayList<>();
+        for (DeviceConnection connection : connections.values()) {
+            devices.add(connection.getDevice());
+        }
+        return devices;
+    }
+
+    private static Device getDevice(DeviceTransport transport) {
+        return deviceMap.computeIfAbsent(transport.getPath(), path -> new Device(path, transport.getName()));
+    }
+
+    /**
+     * Connects a device that is not found by the HID scan, like a {@link SimulatedDevice}, and polls it
+     * like any other. It is detached when the transport reports its removal.
+     *
+     * @return the attached device, or the one already attached at the same path
+     */
+    public static Device attach(DeviceTransport transport) throws IOException {
+        DeviceConnection existing = connections.get(transport.getPath());
+        if (existing != null) {
+            return existing.getDevice();
+        }
+        DeviceConnection connection = new DeviceConnection(getDevice(transport), transport,
+                DeviceManager::onDeviceRemoval);
+        try {
+            transport.open();
+        } catch (IOException ex) {
+            deviceMap.remove(transport.getPath(), connection.getDevice());
+            throw ex;
+        }
+        attach(connection);
+        return connection.getDevice();
+    }
+
+    private static void attach(DeviceConnection connection) {
+        Device device = connection.getDevice();
+        connections.put(device.getHidPath(), connection);
+        notifyListenersDeviceUpdated(device, "Opened", null);
+        connection.start(subscribedReports);
+        notifyListenersDeviceAttached(device);
+    }
+
+    /**
+     * Hands every input report of the device to the tap as it arrives, before it is filtered or decoded.
+     * Called on the transport's callback thread, so the tap must return quickly.
+     *
+     * @param tap null to remove it
+     * @return false if the device is not attached
+     */
+    public static boolean setReportTap(Device device, DeviceTransport.InputReportListener tap) {
+        DeviceConnection connection = connections.get(device.getHidPath());
+        if (connection == null) {
+            return false;
+        }
+        connection.setReportTap(tap);
+        return true;
+    }
+
+    public static String getPollStatistics() {
+        StringBuilder sb = new StringBuilder();
+        for (DeviceConnection connection : connections.values()) {
+            if (!sb.isEmpty()) {
+                sb.append('\n');
+            }
+            sb.append(connection.getDevice().getName()).append(": ")
+                    .append(connection.getPollScheduler().getStatistics());
+        }
+        return sb.toString();
     }
 
-    @Override
-    public void onInputReport(HidDevice hidDevice, byte id, byte[] data, int len) {
-        if (id == DATA_REPORT_ID) {
-            DataReport report = DataReportFactory.create(id, data);
-            notifyListenersDeviceUpdated(getDevice(hidDevice), null, report);
-            if (report instanceof VersionDataReport) {
-                versionReported = true;
+    public static String getTransportStatistics() {
+        StringBuilder sb = new StringBuilder();
+        for (DeviceConnection connection : connections.values()) {
+            if (!sb.isEmpty()) {
+                sb.append('\n');
             }
+            sb.append(connection.getDevice().getName()).append(": ")
+                    .append(connection.getTransport().getStats());
+        }
+        return sb.toString();
+    }
+
+    public static long getSuppressedReportCount() {
+        long count = 0;
+        for (DeviceConnection connection : connections.values()) {
+            count += connection.getReportChangeFilter().getSuppressedCount();
+        }
+        return count;
+    }
+
+    public static long getSuppressedReportCount(byte reportIndex) {
+        long count = 0;
+        for (DeviceConnection connection : connections.values()) {
+            count += connection.getReportChangeFilter().getSuppressedCount(reportIndex);
         }
+        return count;
     }
 
-    private void getOutputReport(byte dataType, byte dataIndex, byte[] data) throws IOException {
-        data[0] = dataType;
-        data[1] = dataIndex;
-        int ret = openedDevice.setOutputReport(Device.CMD_REPORT_ID, data, OUTPUT_REPORT_DATA_LENGTH);
-        if (ret <= 0) {
-            throw new IOException("Device returned error for dataType:" + dataType + " dataIndex:" + dataIndex);
+    public static long getDispatchedReportCount() {
+        long count = 0;
+        for (DeviceConnection connection : connections.values()) {
+            count += connection.getReportChangeFilter().getPassedCount();
         }
-        sleep(SLEEP_BETWEEN_OUTPUT_REPORT);
+        return count;
     }
 
-    private final class ConnectionRunner implements Runnable {
+    /**
+     * Lets the next report of every kind reach the listeners again, even when unchanged.
+     */
+    public static void invalidateReports() {
+        for (DeviceConnection connection : connections.values()) {
+            connection.invalidateReports();
+        }
+    }
+
+    private static String normalizePath(String path) {
+        //hidPath is not null terminated, force to it null-term and uppercase to match SDL case
+        return path.trim().toUpperCase();
+    }
+
+    public static void setSubscribedReports(Set<Byte> commands) {
+        Set<Byte> subscribed = new HashSet<>(commands);
+        //version is always needed until reported
+        subscribed.add(Device.CMD_GET_VER);
+        subscribedReports = subscribed;
+        for (DeviceConnection connection : connections.values()) {
+            connection.setSubscribedReports(subscribed);
+        }
+    }
+
+    public static void addDeviceListener(DeviceListener deviceListener) {
+        addDeviceListener(deviceListener, null);
+    }
+
+    /**
+     * @param executor    runs the listener calls, null to call it on the HID callback thread
+     * @param reportTypes report classes the listener wants, none for every report. Status updates always arrive
+     */
+    @SafeVarargs
+    public static void addDeviceListener(DeviceListener deviceListener, Executor executor,
+                                         Class<? extends DataReport>... reportTypes) {
+        deviceListeners.add(deviceListener, executor, reportTypes);
+        invalidateReports();
+    }
+
+    public static void removeDeviceListener(DeviceListener deviceListener) {
+        deviceListeners.remove(deviceListener);
+    }
+
+    /**
+     * @return time spent in the listener per call, null if it is not registered
+     */
+    public static LatencyStats getDispatchLatency(DeviceListener deviceListener) {
+        return deviceListeners.getDispatchLatency(deviceListener);
+    }
+
+    private final static class ConnectionRunner implements Runnable {
+        private long lastStatistics = System.nanoTime();
+
         @Override
         public void run() {
+            HotplugWatcher watcher = HotplugWatcher.forHidraw(hotplugSignal::release);
+            boolean watching = watcher != null && watcher.start();
+            long retryDelay = 0;
+            boolean signalled = false;
             while (true) {
-                if (!deviceAttached) {
-                    deviceInfo = null;
-                    logger.info("scanning");
-                    notifyListenersDeviceUpdated(null, "Scanning...", null);
-                    Device device = openDevice();
-                    if (device != null) {
-                        notifyListenersDeviceUpdated(device, "Opened", null);
-                        openedDevice.setDeviceRemovalListener(DeviceManager.this);
-                        openedDevice.setInputReportListener(DeviceManager.this);
-                        notifyListenersDeviceAttached(device);
+                //once something is attached only look for more boards when the system reports a change
+                if (connections.isEmpty() || signalled || !watching) {
+                    if (connections.isEmpty()) {
+                        logger.info("scanning");
+                        notifyListenersDeviceUpdated(null, "Scanning...", null);
+                    }
+                    for (DeviceConnection connection : openDevices()) {
+                        attach(connection);
                     }
                 }
-                sleep(2000);
+                if (!connections.isEmpty()) {
+                    retryDelay = 0;
+                }
+                logStatistics();
+                //without hotplug events polling is the only way to notice more boards
+                long waitMillis = SCAN_PERIOD;
+                if (watching) {
+                    waitMillis = retryDelay > 0 ? retryDelay : HOTPLUG_SCAN_PERIOD;
+                }
+                long start = System.nanoTime();
+                signalled = awaitHotplug(waitMillis);
+                if (signalled) {
+                    logger.fine("hotplug event after " + (System.nanoTime() - start) / 1_000_000 + "ms");
+                    retryDelay = HOTPLUG_RETRY_DELAY;
+                } else if (retryDelay > 0) {
+                    //back off until the regular period is reached
+                    retryDelay = retryDelay * 2 < SCAN_PERIOD ? retryDelay * 2 : 0;
+                    signalled = retryDelay > 0;
+                }
+            }
+        }
+
+        private void logStatistics() {
+            if (System.nanoTime() - lastStatistics > TimeUnit.SECONDS.toNanos(10)) {
+                lastStatistics = System.nanoTime();
+                logger.fine("listener dispatch: " + deviceListeners.getStatistics());
+            }
+        }
+
+        private boolean awaitHotplug(long timeoutMillis) {
+            try {
+                boolean signalled = hotplugSignal.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+                //several events of one plug in only need a single scan
+                hotplugSignal.drainPermits();
+                return signalled;
+            } catch (InterruptedException ex) {
+                logger.warning(ex.getMessage());
+                return false;
             }
         }
     }
 
-    private final class OutputReportRunner implements Runnable {
-        @Override
-        public void run() {
-            int failCount = 0;
-            byte[] data = new byte[OUTPUT_REPORT_DATA_LENGTH];
-            while (true) {
-                if (openedDevice != null) {
-                    try {
-                        if (!versionReported) {
-                            //only need to do this once
-                            getOutputReport(Device.CMD_GET_VER, (byte) 0, data);
-                        }
-                        getOutputReport(Device.CMD_GET_STEER, (byte) 0, data);
-                        for (byte i = 0; i < AXIS_COUNT; i++) {
-                            getOutputReport(Device.CMD_GET_ANALOG, i, data);
-                        }
-                        getOutputReport(Device.CMD_GET_BUTTONS, (byte) 0, data);
-                        getOutputReport(Device.CMD_GET_GAINS, (byte) 0, data);
-                        getOutputReport(Device.CMD_GET_MISC, (byte) 0, data);
-                        failCount = 0;
-                    } catch (IOException ex) {
-                        ++failCount;
-                        if (failCount > 3) {
-                            onDeviceRemoval(openedDevice);
-                        }
-                        sleep(250);
-                        logger.warning(ex.getMessage());
-                    }
-                } else {
-                    sleep(500);
-                }
+    /**
+     * Where a device was found last time, by HID path.
+     */
+    private record IndexedDevice(HidDeviceInfo hidInfo, SerialPort serialPort) {
+        private final static String HID_ID = String.format("%08X:%08X", LEONARDO_VENDOR_ID, LEONARDO_PRODUCT_ID);
+        private final static String USB_ID = String.format("%04x:%04x", LEONARDO_VENDOR_ID, LEONARDO_PRODUCT_ID);
+
+        /**
+         * @return true only if sysfs shows the device still behind its nodes, false on other platforms
+         * where that cannot be told without opening, those devices are found by the scan instead
+         */
+        private boolean isPresent() {
+            String hidPath = hidInfo.getPath().trim();
+            String portPath = serialPort.getSystemPortPath();
+            if (!hidPath.startsWith("/dev/") || !Files.isDirectory(Path.of("/sys/class/hidraw"))) {
+                return false;
+            }
+            //the node may have been handed to another device since, check what sysfs says is behind it
+            Path hidNode = Path.of(hidPath);
+            Path hidSys = Path.of("/sys/class/hidraw", hidNode.getFileName().toString(), "device", "uevent");
+            if (!Files.exists(hidNode) || !read(hidSys).toUpperCase().contains(HID_ID)) {
+                return false;
+            }
+            if (portPath == null || !portPath.startsWith("/dev/")) {
+                return true;
+            }
+            Path portNode = Path.of(portPath);
+            Path usbDevice = Path.of("/sys/class/tty", portNode.getFileName().toString(), "device", "..");
+            String usbId = read(usbDevice.resolve("idVendor")).trim() + ":" + read(usbDevice.resolve("idProduct")).trim();
+            return Files.exists(portNode) && usbId.equalsIgnoreCase(USB_ID);
+        }
+
+        private static String read(Path path) {
+            try {
+                return Files.readString(path);
+            } catch (IOException ex) {
+                return "";
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,149 @@
+package com.rkade;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Reads a configuration profile from a properties file, only the settings present are applied.
+ * <pre>
+ * wheel.range=900
+ * wheel.limits=-32767,32767
+ * axis.1.deadzone=50
+ * axis.1.center=none
+ * gain.0=1024
+ * misc.constantspring=0
+ * buttons.debounce=10
+ * </pre>
+ * Axes are numbered from 1 as on the device, gains from 0.
+ */
+public final class DeviceProfile {
+    private final static String NONE = "none";
+    private final static Setting[] WHEEL_SETTINGS = {
+            new Setting("wheel.range", Device.CMD_SET_RANGE, 1),
+            new Setting("wheel.limits", Device.CMD_WHEEL_LIMITS, 2),
+            new Setting("wheel.center", Device.CMD_WHEEL_CENTER, 1),
+            new Setting("wheel.deadzone", Device.CMD_WHEEL_DZ, 1),
+            new Setting("wheel.autolimit", Device.CMD_WHEEL_AUTO_LIMIT, 1),
+            new Setting("wheel.trim", Device.CMD_WHEEL_TRIM, 1),
+            new Setting("wheel.invert", Device.CMD_WHEEL_INVERT, 1),
+            new Setting("buttons.debounce", Device.CMD_SET_DEBOUNCE, 1),
+            new Setting("buttons.shift", Device.CMD_SET_SHIFT_BTN, 1)
+    };
+    private final static Setting[] AXIS_SETTINGS = {
+            new Setting("limits", Device.CMD_SET_AALIMITS, 2),
+            new Setting("center", Device.CMD_SET_AACENTER, 1),
+            new Setting("deadzone", Device.CMD_SET_AADZ, 1),
+            new Setting("autolimit", Device.CMD_SET_AAAUTOLIM, 1),
+            //disabled flag and trim
+            new Setting("odtrim", Device.CMD_SET_ODTRIM, 2)
+    };
+    //indexed by the MISC_* constants, the end stop is not read back so it can not be verified
+    private final static String[] MISC_NAMES = {
+            "maxvd", "maxvf", "maxacc", "minf", "maxf", "cutf", "ffbbd", null, "constantspring", "afcstartup",
+            "mplexshifter"
+    };
+
+    private DeviceProfile() {
+    }
+
+    public static DeviceConfig load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    public static DeviceConfig read(Reader reader) throws IOException {
+        //settings are written in the order of the file, Properties alone would hand them out in hash order
+        Map<String, String> settings = new LinkedHashMap<>();
+        Properties properties = new Properties() {
+            @Override
+            public synchronized Object put(Object key, Object value) {
+                settings.put((String) key, (String) value);
+                return super.put(key, value);
+            }
+        };
+        properties.load(reader);
+        List<DeviceCommand> commands = new ArrayList<>();
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            commands.add(parse(setting.getKey().trim(), setting.getValue().trim()));
+        }
+        return DeviceConfig.empty().with(commands);
+    }
+
+    private static DeviceCommand parse(String key, String value) {
+        for (Setting setting : WHEEL_SETTINGS) {
+            if (setting.name.equals(key)) {
+                short[] args = parseArgs(key, value, setting.argCount);
+                return setting.argCount == 1 ? new DeviceCommand(setting.command, args[0])
+                        : new DeviceCommand(setting.command, args[0], args[1]);
+            }
+        }
+        String[] parts = key.split("\\.");
+        if (parts.length == 3 && parts[0].equals("axis")) {
+            short index = (short) (parseIndex(key, parts[1], 1, Device.AXIS_COUNT) - 1);
+            for (Setting setting : AXIS_SETTINGS) {
+                if (setting.name.equals(parts[2])) {
+                    if (setting.command == Device.CMD_SET_AACENTER && value.equalsIgnoreCase(NONE)) {
+                        return new DeviceCommand(setting.command, index, Short.MIN_VALUE);
+                    }
+                    short[] args = parseArgs(key, value, setting.argCount);
+                    return setting.argCount == 1 ? new DeviceCommand(setting.command, index, args[0])
+                            : new DeviceCommand(setting.command, index, args[0], args[1]);
+                }
+            }
+        } else if (parts.length == 2 && parts[0].equals("gain")) {
+            short index = (short) parseIndex(key, parts[1], 0, DeviceConfig.GAIN_COUNT - 1);
+            return new DeviceCommand(Device.CMD_SET_GAIN, index, parseArgs(key, value, 1)[0]);
+        } else if (parts.length == 2 && parts[0].equals("misc")) {
+            for (short i = 0; i < MISC_NAMES.length; i++) {
+                if (parts[1].equals(MISC_NAMES[i])) {
+                    return new DeviceCommand(Device.CMD_SET_MISC, i, parseArgs(key, value, 1)[0]);
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown profile setting:" + key);
+    }
+
+    private static int parseIndex(String key, String index, int min, int max) {
+        try {
+            int value = Integer.parseInt(index);
+            if (value >= min && value <= max) {
+                return value;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Index of " + key + " must be " + min + ".." + max);
+    }
+
+    private static short[] parseArgs(String key, String value, int count) {
+        String[] parts = value.split(",");
+        if (parts.length != count) {
+            throw new IllegalArgumentException(key + " needs " + count + " value(s):" + value);
+        }
+        short[] args = new short[count];
+        for (int i = 0; i < count; i++) {
+            String part = parts[i].trim();
+            if (part.equalsIgnoreCase("true") || part.equalsIgnoreCase("false")) {
+                args[i] = (short) (Boolean.parseBoolean(part) ? 1 : 0);
+            } else {
+                try {
+                    args[i] = Short.parseShort(part);
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException(key + " is not a number:" + value);
+                }
+            }
+        }
+        return args;
+    }
+
+    private record Setting(String name, byte command, int argCount) {
+    }
+}
@@ -0,0 +1,225 @@
+package com.rkade;
+
+/**
+ * Immutable aggregate of the latest reports of a device. Every update creates a new
+ * state with a higher version, sections that did not change are shared with the previous one.
+ */
+public final class DeviceState {
+    public static final int WHEEL = 1;
+    public static final int BUTTONS = 1 << 1;
+    public static final int GAINS = 1 << 2;
+    public static final int MISC = 1 << 3;
+    public static final int VERSION = 1 << 4;
+    //one bit per axis, starting at AXIS
+    public static final int AXIS = 1 << 8;
+    public static final int AXES = ((1 << Device.AXIS_COUNT) - 1) * AXIS;
+    public static final int ALL = WHEEL | BUTTONS | GAINS | MISC | VERSION | AXES;
+    //the sections holding settings
+    public static final int SETTINGS = WHEEL | BUTTONS | GAINS | MISC | AXES;
+    static final DeviceState EMPTY = new DeviceState(0, 0, null, new AxisDataReport[Device.AXIS_COUNT],
+            null, null, null, null);
+    private final long version;
+    private final int changeMask;
+    private final WheelDataReport wheel;
+    private final AxisDataReport[] axes;
+    private final ButtonsDataReport buttons;
+    private final GainsDataReport gains;
+    private final MiscDataReport misc;
+    private final VersionDataReport firmware;
+
+    private DeviceState(long version, int changeMask, WheelDataReport wheel, AxisDataReport[] axes,
+                        ButtonsDataReport buttons, GainsDataReport gains, MiscDataReport misc,
+                        VersionDataReport firmware) {
+        this.version = version;
+        this.changeMask = changeMask;
+        this.wheel = wheel;
+        this.axes = axes;
+        this.buttons = buttons;
+        this.gains = gains;
+        this.misc = misc;
+        this.firmware = firmware;
+    }
+
+    public static int axisMask(int index) {
+        return AXIS << index;
+    }
+
+    /**
+     * @return the section a report belongs to, 0 for reports not held in the state
+     */
+    public static int maskOf(DataReport report) {
+        return switch (report) {
+            case WheelDataReport ignored -> WHEEL;
+            case AxisDataReport axis -> {
+                int index = axis.getAxis() - 1;
+                yield index >= 0 && index < Device.AXIS_COUNT ? axisMask(index) : 0;
+            }
+            case ButtonsDataReport ignored -> BUTTONS;
+            case GainsDataReport ignored -> GAINS;
+            case MiscDataReport ignored -> MISC;
+            case VersionDataReport ignored -> VERSION;
+            default -> 0;
+        };
+    }
+
+    /**
+     * @return the section the answer to a get report request belongs to, 0 for reports not held in the state
+     */
+    public static int maskOf(byte reportIndex, int section) {
+        return switch (reportIndex) {
+            case Device.CMD_GET_STEER -> WHEEL;
+            case Device.CMD_GET_ANALOG -> section >= 0 && section < Device.AXIS_COUNT ? axisMask(section) : 0;
+            case Device.CMD_GET_BUTTONS -> BUTTONS;
+            case Device.CMD_GET_GAINS -> GAINS;
+            case Device.CMD_GET_MISC -> MISC;
+            case Device.CMD_GET_VER -> VERSION;
+            default -> 0;
+        };
+    }
+
+    /**
+     * @return this state when the report holds nothing new, otherwise the next version with the report copied in
+     */
+    DeviceState with(DataReport report) {
+        //reports may be reused holders, only keep a copy when something changed
+        switch (report) {
+            case WheelDataReport w when !w.equals(wheel) -> {
+                return new DeviceState(version + 1, WHEEL, w.snapshot(), axes, buttons, gains, misc, firmware);
+            }
+            case AxisDataReport a -> {
+                int index = a.getAxis() - 1;
+                if (index >= 0 && index < axes.length && !a.equals(axes[index])) {
+                    AxisDataReport[] copy = axes.clone();
+                    copy[index] = a.snapshot();
+                    return new DeviceState(version + 1, axisMask(index), wheel, copy, buttons, gains, misc, firmware);
+                }
+            }
+            case ButtonsDataReport b when !b.equals(buttons) -> {
+                return new DeviceState(version + 1, BUTTONS, wheel, axes, b.snapshot(), gains, misc, firmware);
+            }
+            case GainsDataReport g when !g.equals(gains) -> {
+                return new DeviceState(version + 1, GAINS, wheel, axes, buttons, g.snapshot(), misc, firmware);
+            }
+            case MiscDataReport m when !m.equals(misc) -> {
+                return new DeviceState(version + 1, MISC, wheel, axes, buttons, gains, m.snapshot(), firmware);
+            }
+            case VersionDataReport v when !v.equals(firmware) -> {
+                return new DeviceState(version + 1, VERSION, wheel, axes, buttons, gains, misc, v.snapshot());
+            }
+            default -> {
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return true once every section holding settings has been reported
+     */
+    public boolean hasConfig() {
+        if (wheel == null || buttons == null || gains == null || misc == null) {
+            return false;
+        }
+        for (AxisDataReport axis : axes) {
+            if (axis == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the sections changed by the update that created this version
+     */
+    public int getChangeMask() {
+        return changeMask;
+    }
+
+    public boolean isChanged(int mask) {
+        return (changeMask & mask) != 0;
+    }
+
+    /**
+     * @return the sections that differ from an older state of the same device, ALL when previous is null
+     */
+    public int changesSince(DeviceState previous) {
+        if (previous == null) {
+            return ALL;
+        }
+        if (previous.version == version) {
+            return 0;
+        }
+        if (previous.version == version - 1) {
+            return changeMask;
+        }
+        //unchanged sections are shared, so identity tells what moved in between
+        int mask = 0;
+        if (wheel != previous.wheel) {
+            mask |= WHEEL;
+        }
+        for (int i = 0; i < axes.length; i++) {
+            if (axes[i] != previous.axes[i]) {
+                mask |= axisMask(i);
+            }
+        }
+        if (buttons != previous.buttons) {
+            mask |= BUTTONS;
+        }
+        if (gains != previous.gains) {
+            mask |= GAINS;
+        }
+        if (misc != previous.misc) {
+            mask |= MISC;
+        }
+        if (firmware != previous.firmware) {
+            mask |= VERSION;
+        }
+        return mask;
+    }
+
+    public WheelDataReport getWheel() {
+        return wheel;
+    }
+
+    public AxisDataReport getAxis(int index) {
+        return axes[index];
+    }
+
+    public AxisDataReport[] getAxes() {
+        return axes.clone();
+    }
+
+    public ButtonsDataReport getButtons() {
+        return buttons;
+    }
+
+    public GainsDataReport getGains() {
+        return gains;
+    }
+
+    public MiscDataReport getMisc() {
+        return misc;
+    }
+
+    public VersionDataReport getFirmware() {
+        return firmware;
+    }
+
+    /**
+     * @return the configuration shown by this state, only holding the sections already reported
+     */
+    public DeviceConfig toConfig() {
+        return DeviceConfig.fromReports(wheel, axes, gains, misc, buttons);
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceState{" +
+                "version=" + version +
+                ", changeMask=0x" + Integer.toHexString(changeMask) +
+                '}';
+    }
+}
@@ -0,0 +1,43 @@
+package com.rkade;
+
+import java.io.IOException;
+
+/**
+ * The link to one device: output reports go out, input reports and removal come back
+ * through the listeners. Implemented over purejavahidapi ({@link HidTransport}), by
+ * {@link SimulatedDevice}, {@link ReplayTransport} and over a socket ({@link TcpTransport}).
+ */
+public interface DeviceTransport {
+    /**
+     * @return unique path of the device, used as its key
+     */
+    String getPath();
+
+    String getName();
+
+    /**
+     * Opens the device, listeners may already be called before this returns.
+     */
+    void open() throws IOException;
+
+    /**
+     * @return bytes written, zero or less on error
+     */
+    int setOutputReport(byte reportId, byte[] data, int length);
+
+    void setInputReportListener(InputReportListener listener);
+
+    void setRemovalListener(Runnable listener);
+
+    void close();
+
+    TransportStats getStats();
+
+    @FunctionalInterface
+    interface InputReportListener {
+        /**
+         * @param data only valid during the call, the transport may reuse it
+         */
+        void onInputReport(byte reportId, byte[] data, int length);
+    }
+}
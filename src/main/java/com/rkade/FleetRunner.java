@@ -0,0 +1,151 @@
+package com.rkade;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * Applies one profile to many devices in parallel: read the current settings, write what
+ * differs, store it in EEPROM and read it back, with requests sent after the last write, until it matches.
+ */
+public final class FleetRunner {
+    private final static Logger logger = Logger.getLogger(FleetRunner.class.getName());
+    private final DeviceConfig profile;
+    private final long timeoutMillis;
+
+    public FleetRunner(DeviceConfig profile, long timeoutMillis) {
+        this.profile = profile;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Waits until the expected number of devices is attached or the timeout is over.
+     *
+     * @return the devices attached by then
+     */
+    public static List<Device> awaitDevices(int expected, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        List<Device> devices = DeviceManager.getAttachedDevices();
+        while (devices.size() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            devices = DeviceManager.getAttachedDevices();
+        }
+        return devices;
+    }
+
+    public List<Result> run(List<Device> devices) throws InterruptedException {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (Device device : devices) {
+                futures.add(executor.submit(() -> apply(device)));
+            }
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException ex) {
+                    //apply handles its own failures, this is a bug
+                    throw new IllegalStateException(ex.getCause());
+                }
+            }
+            return results;
+        }
+    }
+
+    private Result apply(Device device) {
+        long start = System.nanoTime();
+        List<DeviceCommand> changes = List.of();
+        List<DeviceCommand> remaining = profile.getCommands().stream().toList();
+        List<String> errors = new ArrayList<>();
+        long readNanos = 0;
+        long writeNanos = 0;
+        long verifyNanos = 0;
+        try {
+            DeviceState before = device.awaitState(DeviceState::hasConfig, timeoutMillis).get();
+            readNanos = System.nanoTime() - start;
+            changes = before.toConfig().diff(profile);
+            logger.info(device.getName() + ": " + changes.size() + " of " + profile.size() + " settings differ");
+
+            long writeStart = System.nanoTime();
+            List<CommandResult> written = device.applyConfig(profile, true)
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+            writeNanos = System.nanoTime() - writeStart;
+            long lastWrite = writeStart;
+            for (CommandResult result : written) {
+                if (!result.isSuccess()) {
+                    errors.add("write failed: " + result.getCommand());
+                } else if (result.getWrittenAtNanos() - lastWrite > 0) {
+                    lastWrite = result.getWrittenAtNanos();
+                }
+            }
+
+            long verifyStart = System.nanoTime();
+            DeviceState readBack = null;
+            try {
+                //only reports requested after the EEPROM save, the last write, show what was applied
+                readBack = device.awaitReadBack(DeviceState.SETTINGS, lastWrite,
+                        s -> s.toConfig().diff(profile).isEmpty(), timeoutMillis).get();
+            } catch (ExecutionException ex) {
+                if (!(ex.getCause() instanceof TimeoutException)) {
+                    throw ex;
+                }
+            }
+            verifyNanos = System.nanoTime() - verifyStart;
+            remaining = device.getConfig().diff(profile);
+            if (!remaining.isEmpty()) {
+                errors.add(remaining.size() + " setting(s) not read back");
+            } else if (readBack == null) {
+                errors.add("settings not read back after the writes");
+            }
+        } catch (ExecutionException ex) {
+            errors.add(ex.getCause() instanceof TimeoutException ? "no answer within " + timeoutMillis + "ms"
+                    : String.valueOf(ex.getCause()));
+        } catch (TimeoutException ex) {
+            errors.add("writes not done within " + timeoutMillis + "ms");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            errors.add("interrupted");
+        }
+        return new Result(device.getName(), device.getHidPath(), changes, remaining, errors,
+                readNanos, writeNanos, verifyNanos, System.nanoTime() - start);
+    }
+
+    public static String summary(List<Result> results) {
+        StringBuilder sb = new StringBuilder();
+        int failed = 0;
+        for (Result result : results) {
+            sb.append(result).append('\n');
+            for (DeviceCommand command : result.remaining()) {
+                sb.append("    differs: ").append(command).append('\n');
+            }
+            for (String error : result.errors()) {
+                sb.append("    error: ").append(error).append('\n');
+            }
+            if (!result.isSuccess()) {
+                failed++;
+            }
+        }
+        sb.append(results.size() - failed).append(" of ").append(results.size()).append(" device(s) configured");
+        return sb.toString();
+    }
+
+    /**
+     * @param changes   settings that differed before and were written
+     * @param remaining settings that still differ after the read back
+     */
+    public record Result(String name, String path, List<DeviceCommand> changes, List<DeviceCommand> remaining,
+                         List<String> errors, long readNanos, long writeNanos, long verifyNanos, long totalNanos) {
+        public boolean isSuccess() {
+            return errors.isEmpty() && remaining.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s [%s] changed=%d read=%dms write=%dms verify=%dms total=%dms",
+                    isSuccess() ? "OK  " : "FAIL", name, path, changes.size(),
+                    TimeUnit.NANOSECONDS.toMillis(readNanos), TimeUnit.NANOSECONDS.toMillis(writeNanos),
+                    TimeUnit.NANOSECONDS.toMillis(verifyNanos), TimeUnit.NANOSECONDS.toMillis(totalNanos));
+        }
+    }
+}
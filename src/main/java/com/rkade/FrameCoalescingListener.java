@@ -0,0 +1,106 @@
+package com.rkade;
+
+import javax.swing.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Moves device events onto the EDT. Reports only mark their section in the mailbox of their device, a timer
+ * tick then hands the latest value of each marked section to the delegate, so every
+ * component is updated at most once per frame however fast the device reports.
+ */
+public final class FrameCoalescingListener implements DeviceListener {
+    public final static int DEFAULT_FRAME_RATE = 60;
+    private final DeviceListener delegate;
+    private final Timer timer;
+    private final AtomicReference<String> pendingStatus = new AtomicReference<>();
+    private final Map<Device, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private volatile Device statusDevice;
+
+    public FrameCoalescingListener(DeviceListener delegate, int frameRate) {
+        this.delegate = delegate;
+        timer = new Timer(1000 / Math.clamp(frameRate, 1, 1000), e -> drain());
+        timer.start();
+    }
+
+    @Override
+    public void deviceAttached(Device device) {
+        SwingUtilities.invokeLater(() -> {
+            //keep the order of what was reported before the attach
+            drain();
+            delegate.deviceAttached(device);
+        });
+    }
+
+    @Override
+    public void deviceDetached(Device device) {
+        SwingUtilities.invokeLater(() -> {
+            //reports of the removed device are stale now, only the status is still of interest
+            mailboxes.remove(device);
+            drain();
+            delegate.deviceDetached(device);
+        });
+    }
+
+    @Override
+    public void deviceUpdated(Device device, String status, DataReport report) {
+        if (status != null) {
+            statusDevice = device;
+            pendingStatus.set(status);
+        }
+        if (report != null && device != null) {
+            Mailbox mailbox = mailboxes.computeIfAbsent(device, d -> new Mailbox());
+            int mask = DeviceState.maskOf(report);
+            if (mask != 0) {
+                mailbox.mask.getAndUpdate(m -> m | mask);
+            } else {
+                mailbox.other = report.snapshot();
+            }
+        }
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+
+    private void drain() {
+        String status = pendingStatus.getAndSet(null);
+        if (status != null) {
+            delegate.deviceUpdated(statusDevice, status, null);
+        }
+        for (Map.Entry<Device, Mailbox> entry : mailboxes.entrySet()) {
+            Device device = entry.getKey();
+            Mailbox mailbox = entry.getValue();
+            int mask = mailbox.mask.getAndSet(0);
+            if (mask != 0) {
+                DeviceState state = device.getState();
+                deliver(device, mask, DeviceState.VERSION, state.getFirmware());
+                deliver(device, mask, DeviceState.WHEEL, state.getWheel());
+                for (int i = 0; i < Device.AXIS_COUNT; i++) {
+                    deliver(device, mask, DeviceState.axisMask(i), state.getAxis(i));
+                }
+                deliver(device, mask, DeviceState.BUTTONS, state.getButtons());
+                deliver(device, mask, DeviceState.GAINS, state.getGains());
+                deliver(device, mask, DeviceState.MISC, state.getMisc());
+            }
+            DataReport other = mailbox.other;
+            if (other != null) {
+                mailbox.other = null;
+                delegate.deviceUpdated(device, null, other);
+            }
+        }
+    }
+
+    private void deliver(Device device, int mask, int section, DataReport report) {
+        if ((mask & section) != 0 && report != null) {
+            delegate.deviceUpdated(device, null, report);
+        }
+    }
+
+    private static final class Mailbox {
+        private final AtomicInteger mask = new AtomicInteger();
+        private volatile DataReport other;
+    }
+}
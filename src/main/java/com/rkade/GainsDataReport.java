@@ -1,20 +1,77 @@
 package com.rkade;
 
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Objects;
 
 public final class GainsDataReport extends DataReport {
-    private final List<Short> gainValues = new ArrayList<>(Device.DATA_REPORT_VALUE_COUNT);
+    final short[] gainValues = new short[Device.DATA_REPORT_VALUE_COUNT];
+    int gainCount;
 
     public GainsDataReport(byte reportType, byte reportIndex, short section, ByteBuffer buffer) {
         super(reportType, reportIndex, section);
-        while (buffer.hasRemaining()) {
-            gainValues.add(buffer.getShort());
+        decode(buffer);
+    }
+
+    GainsDataReport() {
+    }
+
+    private GainsDataReport(GainsDataReport other) {
+        super(other.reportType, (byte) other.reportIndex, other.section);
+        System.arraycopy(other.gainValues, 0, gainValues, 0, other.gainCount);
+        gainCount = other.gainCount;
+    }
+
+    @Override
+    void decode(ByteBuffer buffer) {
+        int count = Math.min(buffer.remaining() / Short.BYTES, gainValues.length);
+        for (int i = 0; i < count; i++) {
+            gainValues[i] = buffer.getShort();
+        }
+        //clear what a longer previous report left behind, so equals can compare the whole array
+        if (count < gainCount) {
+            Arrays.fill(gainValues, count, gainCount, (short) 0);
         }
+        gainCount = count;
+    }
+
+    @Override
+    public GainsDataReport snapshot() {
+        return new GainsDataReport(this);
     }
 
     public short getGainValue(short index) {
-        return gainValues.get(index);
+        return gainValues[Objects.checkIndex(index, gainCount)];
+    }
+
+    public int getGainCount() {
+        return gainCount;
+    }
+
+    /**
+     * Copies the gains into dst, up to the shorter of the two.
+     *
+     * @return number of gains copied
+     */
+    public int copyGains(short[] dst) {
+        int count = Math.min(dst.length, gainCount);
+        System.arraycopy(gainValues, 0, dst, 0, count);
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GainsDataReport that)) {
+            return false;
+        }
+        return headerEquals(that) && gainCount == that.gainCount && Arrays.equals(gainValues, that.gainValues);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hash(reportType, reportIndex, section, gainCount) + Arrays.hashCode(gainValues);
     }
 }
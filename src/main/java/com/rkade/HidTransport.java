@@ -0,0 +1,69 @@
+package com.rkade;
+
+import purejavahidapi.HidDevice;
+import purejavahidapi.HidDeviceInfo;
+import purejavahidapi.PureJavaHidApi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transport over purejavahidapi.
+ */
+final class HidTransport extends AbstractTransport {
+    private final HidDeviceInfo info;
+    private final String path;
+    private volatile HidDevice hidDevice;
+
+    HidTransport(HidDeviceInfo info, String path) {
+        this.info = info;
+        this.path = path;
+    }
+
+    static List<HidDeviceInfo> enumerate(int vendorId, int productId) {
+        List<HidDeviceInfo> found = new ArrayList<>();
+        for (HidDeviceInfo info : PureJavaHidApi.enumerateDevices()) {
+            if (info.getVendorId() == vendorId && info.getProductId() == productId) {
+                found.add(info);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public String getName() {
+        return info.getProductString();
+    }
+
+    @Override
+    public void open() throws IOException {
+        HidDevice device = PureJavaHidApi.openDevice(info);
+        if (device == null) {
+            throw new IOException("Device could not be opened: " + path);
+        }
+        device.open();
+        device.setInputReportListener((source, id, data, len) -> received(id, data, len));
+        device.setDeviceRemovalListener(source -> removed());
+        hidDevice = device;
+    }
+
+    @Override
+    protected int write(byte reportId, byte[] data, int length) {
+        HidDevice device = hidDevice;
+        return device == null ? -1 : device.setOutputReport(reportId, data, length);
+    }
+
+    @Override
+    public void close() {
+        HidDevice device = hidDevice;
+        if (device != null) {
+            device.close();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.rkade;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Watches device directories such as /dev for nodes coming and going, so a scan can run
+ * right when a device is plugged in instead of waiting for the next polling round.
+ */
+final class HotplugWatcher implements Closeable {
+    private final static Logger logger = Logger.getLogger(HotplugWatcher.class.getName());
+    private final static String HIDRAW_PREFIX = "hidraw";
+    private final List<Path> directories;
+    private final String namePrefix;
+    private final Runnable onChange;
+    private volatile WatchService watchService;
+    private volatile long eventCount;
+
+    HotplugWatcher(List<Path> directories, String namePrefix, Runnable onChange) {
+        this.directories = List.copyOf(directories);
+        this.namePrefix = namePrefix;
+        this.onChange = onChange;
+    }
+
+    /**
+     * @return watcher for the Linux hidraw nodes, null on other platforms
+     */
+    static HotplugWatcher forHidraw(Runnable onChange) {
+        if (!System.getProperty("os.name", "").toLowerCase().startsWith("linux")) {
+            return null;
+        }
+        return new HotplugWatcher(List.of(Path.of("/dev"), Path.of("/sys/class/hidraw")), HIDRAW_PREFIX, onChange);
+    }
+
+    /**
+     * @return false if none of the directories can be watched, the caller has to keep polling
+     */
+    boolean start() {
+        List<Path> watched = new ArrayList<>();
+        try {
+            WatchService service = FileSystems.getDefault().newWatchService();
+            for (Path directory : directories) {
+                if (Files.isDirectory(directory)) {
+                    try {
+                        directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                                StandardWatchEventKinds.ENTRY_DELETE);
+                        watched.add(directory);
+                    } catch (IOException ex) {
+                        logger.warning("Cannot watch " + directory + ": " + ex.getMessage());
+                    }
+                }
+            }
+            if (watched.isEmpty()) {
+                service.close();
+                return false;
+            }
+            watchService = service;
+        } catch (IOException | UnsupportedOperationException ex) {
+            logger.warning("Hotplug detection unavailable: " + ex.getMessage());
+            return false;
+        }
+        Thread thread = new Thread(this::run, "HotplugWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("watching " + watched + " for " + namePrefix + "*");
+        return true;
+    }
+
+    boolean isRunning() {
+        return watchService != null;
+    }
+
+    long getEventCount() {
+        return eventCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        WatchService service = watchService;
+        watchService = null;
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            WatchService service = watchService;
+            if (service == null) {
+                return;
+            }
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                return;
+            }
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                //on overflow the events are lost, scan anyway
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                        || event.context() instanceof Path name && name.toString().startsWith(namePrefix)) {
+                    changed = true;
+                }
+            }
+            key.reset();
+            if (changed) {
+                eventCount++;
+                try {
+                    onChange.run();
+                } catch (RuntimeException ex) {
+                    logger.warning("Hotplug handler failed: " + ex.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.rkade;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency recorder with power of two buckets, safe to update from any thread.
+ */
+public final class LatencyStats {
+    private final static int BUCKET_COUNT = 64;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        //bucket i holds values below 2^i
+        buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    public long getMeanNanos() {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        return totalNanos.get() / n;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @return upper bound of the bucket holding the given percentile, in nanoseconds
+     */
+    public long getPercentileNanos(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(n * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                return Math.min(i == 0 ? 0 : (1L << i) - 1, getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyStats{" +
+                "count=" + getCount() +
+                ", meanUs=" + TimeUnit.NANOSECONDS.toMicros(getMeanNanos()) +
+                ", p99Us=" + TimeUnit.NANOSECONDS.toMicros(getPercentileNanos(99)) +
+                ", maxUs=" + TimeUnit.NANOSECONDS.toMicros(getMaxNanos()) +
+                '}';
+    }
+}
@@ -0,0 +1,157 @@
+package com.rkade;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Copy-on-write set of device listeners. Dispatch walks a plain array without locking,
+ * listeners may only want some report classes and may be called on their own executor
+ * so a slow one does not hold up the HID callback thread.
+ */
+final class ListenerRegistry {
+    private final static Logger logger = Logger.getLogger(ListenerRegistry.class.getName());
+    private volatile Registration[] registrations = new Registration[0];
+
+    synchronized void add(DeviceListener listener, Executor executor, Class<?>[] reportTypes) {
+        Registration[] current = registrations;
+        Registration[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = new Registration(listener, executor, reportTypes.clone());
+        registrations = next;
+    }
+
+    synchronized void remove(DeviceListener listener) {
+        Registration[] current = registrations;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].listener == listener) {
+                Registration[] next = new Registration[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                registrations = next;
+                return;
+            }
+        }
+    }
+
+    void notifyAttached(Device device) {
+        for (Registration registration : registrations) {
+            registration.dispatch(() -> registration.listener.deviceAttached(device));
+        }
+    }
+
+    void notifyDetached(Device device) {
+        for (Registration registration : registrations) {
+            registration.dispatch(() -> registration.listener.deviceDetached(device));
+        }
+    }
+
+    void notifyUpdated(Device device, String status, DataReport report) {
+        DataReport copy = null;
+        for (Registration registration : registrations) {
+            if (!registration.accepts(report)) {
+                continue;
+            }
+            if (registration.executor == null) {
+                //hot path, called for every report so no task is allocated
+                long start = System.nanoTime();
+                try {
+                    registration.listener.deviceUpdated(device, status, report);
+                } catch (RuntimeException ex) {
+                    registration.failed(ex);
+                } finally {
+                    registration.latency.record(System.nanoTime() - start);
+                }
+            } else {
+                //the report may be a reused holder, hand the other thread its own copy
+                if (copy == null && report != null) {
+                    copy = report.snapshot();
+                }
+                DataReport handedOff = copy;
+                registration.dispatch(() -> registration.listener.deviceUpdated(device, status, handedOff));
+            }
+        }
+    }
+
+    LatencyStats getDispatchLatency(DeviceListener listener) {
+        for (Registration registration : registrations) {
+            if (registration.listener == listener) {
+                return registration.latency;
+            }
+        }
+        return null;
+    }
+
+    String getStatistics() {
+        StringBuilder sb = new StringBuilder();
+        for (Registration registration : registrations) {
+            if (!sb.isEmpty()) {
+                sb.append(' ');
+            }
+            sb.append(registration.listener.getClass().getSimpleName()).append(registration.latency);
+            long rejected = registration.rejectedCount.sum();
+            if (rejected > 0) {
+                sb.append(" rejected=").append(rejected);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final class Registration {
+        private final DeviceListener listener;
+        private final Executor executor;
+        private final Class<?>[] reportTypes;
+        private final LatencyStats latency = new LatencyStats();
+        //dispatched from every device's input thread
+        private final LongAdder rejectedCount = new LongAdder();
+
+        private Registration(DeviceListener listener, Executor executor, Class<?>[] reportTypes) {
+            this.listener = listener;
+            this.executor = executor;
+            this.reportTypes = reportTypes;
+        }
+
+        private boolean accepts(DataReport report) {
+            //status only updates go to everyone
+            if (report == null || reportTypes.length == 0) {
+                return true;
+            }
+            for (Class<?> reportType : reportTypes) {
+                if (reportType.isInstance(report)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void dispatch(Runnable call) {
+            if (executor == null) {
+                run(call);
+                return;
+            }
+            try {
+                executor.execute(() -> run(call));
+            } catch (RejectedExecutionException ex) {
+                rejectedCount.increment();
+                logger.warning("Listener " + listener + " rejected an update: " + ex.getMessage());
+            }
+        }
+
+        private void run(Runnable call) {
+            long start = System.nanoTime();
+            try {
+                call.run();
+            } catch (RuntimeException ex) {
+                failed(ex);
+            } finally {
+                latency.record(System.nanoTime() - start);
+            }
+        }
+
+        private void failed(RuntimeException ex) {
+            //one broken listener must not stop the others or the HID callback thread
+            logger.severe("Listener " + listener + " failed: " + ex);
+        }
+    }
+}
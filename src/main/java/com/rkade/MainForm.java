@@ -14,10 +14,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 public class MainForm extends BaseForm implements DeviceListener, ActionListener, FocusListener, ChangeListener {
     private final static Logger logger = Logger.getLogger(MainForm.class.getName());
+    private final static int STORAGE_TIMEOUT = 60000;
     private final static List<String> axisLabels = List.of(
             "Axis 1 (Y - Accelerator)",
             "Axis 2 (Z - Brake)",
@@ -126,7 +130,6 @@ public class MainForm extends BaseForm implements DeviceListener, ActionListener
     private JCheckBox invertCheckBox;
     private BufferedImage wheelImage;
     private Device device = null;
-    private volatile boolean isWaitingOnDevice = false;
 
     {
 // GUI initializer generated by IntelliJ IDEA GUI Designer
@@ -186,6 +189,22 @@ public class MainForm extends BaseForm implements DeviceListener, ActionListener
         cutForceSlider.setMaximum(16383);
 
         setPanelEnabled(false);
+
+        mainTab.addChangeListener(this);
+        updateSubscribedReports();
+    }
+
+    private void updateSubscribedReports() {
+        Component selected = mainTab.getSelectedComponent();
+        if (selected == axesTab) {
+            DeviceManager.setSubscribedReports(Set.of(Device.CMD_GET_STEER, Device.CMD_GET_ANALOG));
+        } else if (selected == ffbTab) {
+            DeviceManager.setSubscribedReports(Set.of(Device.CMD_GET_GAINS, Device.CMD_GET_MISC));
+        } else if (selected == buttonsTab) {
+            DeviceManager.setSubscribedReports(Set.of(Device.CMD_GET_BUTTONS));
+        } else {
+            DeviceManager.setSubscribedReports(Set.of());
+        }
     }
 
     private void setupAxisPanels() {
@@ -299,53 +318,51 @@ public class MainForm extends BaseForm implements DeviceListener, ActionListener
             } else if (e.getActionCommand().equals(afcCheckBox.getActionCommand())) {
                 return device.setMiscValue(Device.MISC_AFC_STARTUP, afcCheckBox.isSelected());
             } else if (e.getActionCommand().equals(saveButton.getActionCommand())) {
-                isWaitingOnDevice = true;
-                boolean status = device.saveSettings();
-                showWaitDialog();
-                return status;
+                return runStorageCommand(Device.CMD_EESAVE, "Saving Settings...");
             } else if (e.getActionCommand().equals(defaultsButton.getActionCommand())) {
-                isWaitingOnDevice = true;
-                boolean status = device.loadDefaults();
-                showWaitDialog();
-                return status;
+                return runStorageCommand(Device.CMD_DEFAULT, "Loading Defaults...");
             } else if (e.getActionCommand().equals(loadButton.getActionCommand())) {
-                isWaitingOnDevice = true;
-                boolean status = device.loadFromEeprom();
-                showWaitDialog();
-                return status;
+                return runStorageCommand(Device.CMD_EELOAD, "Loading Settings...");
             }
         }
         return true;
     }
 
-    private void showWaitDialog() {
+    /**
+     * Shows a wait dialog until the device answers again after the command, or the timeout is over.
+     */
+    private boolean runStorageCommand(byte command, String title) {
+        Device target = device;
+        CompletableFuture<CommandResult> done = target.submitStorageCommand(command, STORAGE_TIMEOUT);
         JLabel validator = new JLabel("<html><body>Please wait, this may take up to 1 minute.</body></html>");
         JOptionPane pane = new JOptionPane(validator, JOptionPane.INFORMATION_MESSAGE, JOptionPane.DEFAULT_OPTION,
                 null, new Object[]{}, null);
-        final JDialog dialog = pane.createDialog(mainPanel, "Loading Settings...");
+        final JDialog dialog = pane.createDialog(mainPanel, title);
         dialog.setModal(true);
         dialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
-        SwingWorker<Void, Void> worker = new SwingWorker<>() {
-            public Void doInBackground() {
-                setPanelEnabled(false);
-                int seconds = 0;
-                isWaitingOnDevice = true;
-                do {
-                    try {
-                        Thread.sleep(1000);
-                        validator.setText(String.format("<html><body>Please wait, this may take up to 1 minute.<br/>Elapsed Seconds: %d</body></html>", ++seconds));
-                    } catch (InterruptedException ignored) {
-                    }
-                } while (isWaitingOnDevice);
-                dialog.setVisible(false);
-                setPanelEnabled(true);
-                return null;
+        long start = System.nanoTime();
+        Timer elapsed = new Timer(1000, e -> validator.setText(String.format(
+                "<html><body>Please wait, this may take up to 1 minute.<br/>Elapsed Seconds: %d</body></html>",
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start))));
+        boolean[] status = {true};
+        done.whenComplete((result, ex) -> SwingUtilities.invokeLater(() -> {
+            elapsed.stop();
+            dialog.setVisible(false);
+            dialog.dispose();
+            setPanelEnabled(true);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (result != null && result.isConfirmed()) {
+                logger.info(title + " done in " + millis + "ms");
+            } else {
+                status[0] = false;
+                logger.warning(title + " not confirmed by " + target.getName() + " after " + millis + "ms");
             }
-        };
-        isWaitingOnDevice = true;
-        worker.execute();
+        }));
+        setPanelEnabled(false);
+        elapsed.start();
+        //modal, returns once the completion above hides it
         dialog.setVisible(true);
-        isWaitingOnDevice = true;
+        return status[0];
     }
 
     private boolean handleFocusLost(FocusEvent e) {
@@ -387,6 +404,10 @@ public class MainForm extends BaseForm implements DeviceListener, ActionListener
 
     @Override
     public void stateChanged(ChangeEvent e) {
+        if (e.getSource() == mainTab) {
+            updateSubscribedReports();
+            return;
+        }
         if (device != null) {
             boolean status = true;
             if (e.getSource() == minForceSlider) {
@@ -442,6 +463,10 @@ public class MainForm extends BaseForm implements DeviceListener, ActionListener
 
     @Override
     public void deviceAttached(Device device) {
+        //the form shows one device, further boards are driven but not shown
+        if (this.device != null) {
+            return;
+        }
         this.device = device;
         deviceLabel.setText(device.getName());
         versionLabel.setText(device.getFirmwareType() + ":" + device.getFirmwareVersion());
@@ -457,6 +482,9 @@ public class MainForm extends BaseForm implements DeviceListener, ActionListener
 
     @Override
     public void deviceDetached(Device device) {
+        if (device != this.device) {
+            return;
+        }
         deviceLabel.setText("");
         versionLabel.setText("");
         this.device = null;
@@ -468,6 +496,15 @@ public class MainForm extends BaseForm implements DeviceListener, ActionListener
             gainPanel.deviceDetached(device);
         }
         buttonsPanel.deviceDetached(device);
+        //show the next board if there is one
+        for (Device other : DeviceManager.getAttachedDevices()) {
+            if (other != device) {
+                deviceAttached(other);
+                //its unchanged reports were filtered while it was not shown
+                DeviceManager.invalidateReports();
+                break;
+            }
+        }
     }
 
     @Override
@@ -476,7 +513,7 @@ public class MainForm extends BaseForm implements DeviceListener, ActionListener
             statusLabel.setText(status);
         }
 
-        if (report != null) {
+        if (report != null && device == this.device) {
             if (report.getReportType() == Device.DATA_REPORT_ID) {
                 switch (report) {
                     case WheelDataReport wheelData -> {
@@ -513,9 +550,6 @@ public class MainForm extends BaseForm implements DeviceListener, ActionListener
                     }
                 }
             }
-            if (isWaitingOnDevice) {
-                isWaitingOnDevice = false;
-            }
         }
     }
 
@@ -1,23 +1,46 @@
 package com.rkade;
 
 import java.nio.ByteBuffer;
+import java.util.Objects;
 
 public final class MiscDataReport extends DataReport {
-    private final short maxVd;
-    private final short maxVf;
-    private final short maxAcc;
-    private final short minForce;
-    private final short maxForce;
-    private final short cutForce;
-    private final byte ffbBitDepth;
-    private final short endStopOffset;
-    private final short endStopWidth;
-    private final boolean constantSpring;
-    private final boolean autoCenterOnStartup;
+    short maxVd;
+    short maxVf;
+    short maxAcc;
+    short minForce;
+    short maxForce;
+    short cutForce;
+    byte ffbBitDepth;
+    short endStopOffset;
+    short endStopWidth;
+    boolean constantSpring;
+    boolean autoCenterOnStartup;
 
     public MiscDataReport(byte reportType, byte reportIndex, short section, ByteBuffer buffer) {
         super(reportType, reportIndex, section);
+        decode(buffer);
+    }
+
+    MiscDataReport() {
+    }
 
+    private MiscDataReport(MiscDataReport other) {
+        super(other.reportType, (byte) other.reportIndex, other.section);
+        maxVd = other.maxVd;
+        maxVf = other.maxVf;
+        maxAcc = other.maxAcc;
+        minForce = other.minForce;
+        maxForce = other.maxForce;
+        cutForce = other.cutForce;
+        ffbBitDepth = other.ffbBitDepth;
+        endStopOffset = other.endStopOffset;
+        endStopWidth = other.endStopWidth;
+        constantSpring = other.constantSpring;
+        autoCenterOnStartup = other.autoCenterOnStartup;
+    }
+
+    @Override
+    void decode(ByteBuffer buffer) {
         maxVd = buffer.getShort();
         maxVf = buffer.getShort();
         maxAcc = buffer.getShort();
@@ -34,6 +57,11 @@ public final class MiscDataReport extends DataReport {
         autoCenterOnStartup = buffer.get() > 0;
     }
 
+    @Override
+    public MiscDataReport snapshot() {
+        return new MiscDataReport(this);
+    }
+
     public short getMaxVd() {
         return maxVd;
     }
@@ -77,4 +105,25 @@ public final class MiscDataReport extends DataReport {
     public boolean isAutoCenterOnStartup() {
         return autoCenterOnStartup;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MiscDataReport that)) {
+            return false;
+        }
+        return headerEquals(that) && maxVd == that.maxVd && maxVf == that.maxVf && maxAcc == that.maxAcc
+                && minForce == that.minForce && maxForce == that.maxForce && cutForce == that.cutForce
+                && ffbBitDepth == that.ffbBitDepth && endStopOffset == that.endStopOffset
+                && endStopWidth == that.endStopWidth && constantSpring == that.constantSpring
+                && autoCenterOnStartup == that.autoCenterOnStartup;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxVd, maxVf, maxAcc, minForce, maxForce, cutForce, ffbBitDepth, endStopOffset,
+                endStopWidth, constantSpring, autoCenterOnStartup);
+    }
 }
@@ -0,0 +1,254 @@
+package com.rkade;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Earliest-deadline-first plan for the get-report requests sent to the device.
+ * The gap between two output reports is learned from the round trip of the
+ * matching input reports instead of using a fixed sleep.
+ */
+final class PollScheduler {
+    private final static long MIN_GAP_NANOS = TimeUnit.MICROSECONDS.toNanos(1500);
+    private final static long MAX_GAP_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private final PollEntry[] entries;
+    private volatile long gapNanos = MAX_GAP_NANOS;
+    private volatile long roundTripNanos = MAX_GAP_NANOS;
+    private volatile long lastSentNanos;
+    private volatile long lastAnsweredNanos;
+    private volatile PollEntry lastSent;
+    private volatile boolean hasSent;
+    private volatile long sentCount;
+    private volatile long missedCount;
+    private final AtomicLongArray sentByTier = new AtomicLongArray(Tier.values().length);
+    private final AtomicLongArray receivedBytesByTier = new AtomicLongArray(Tier.values().length);
+
+    PollScheduler(PollEntry... entries) {
+        this.entries = entries;
+    }
+
+    PollEntry nextEntry() {
+        PollEntry next = null;
+        for (PollEntry entry : entries) {
+            if (entry.enabled && (entry.subscribed || entry.refreshNanos != 0)
+                    && (next == null || entry.deadline < next.deadline)) {
+                next = entry;
+            }
+        }
+        return next;
+    }
+
+    long nanosUntilSend(PollEntry entry, long now) {
+        return Math.max(entry.deadline - now, nanosUntilPaced(now));
+    }
+
+    long nanosUntilPaced(long now) {
+        if (!hasSent) {
+            return 0;
+        }
+        PollEntry previous = lastSent;
+        if (previous != null && previous.sentNanos == 0) {
+            //previous request already answered, pipeline the next one right behind it
+            return Math.max(lastAnsweredNanos, lastSentNanos + MIN_GAP_NANOS) - now;
+        }
+        return lastSentNanos + gapNanos - now;
+    }
+
+    void onSending(PollEntry entry, long now) {
+        checkMissed();
+        entry.sentNanos = now;
+        entry.requestedNanos = now;
+        entry.deadline = now + entry.periodNanos;
+        lastSent = entry;
+        lastSentNanos = now;
+        hasSent = true;
+        sentCount++;
+        sentByTier.incrementAndGet(entry.tier.ordinal());
+    }
+
+    void onSendingCommand(long now) {
+        //writes are not answered, the next report waits a full gap
+        checkMissed();
+        lastSent = null;
+        lastSentNanos = now;
+        hasSent = true;
+    }
+
+    private void checkMissed() {
+        PollEntry previous = lastSent;
+        if (previous != null && previous.sentNanos != 0) {
+            //no answer within the gap, back off until the round trip is learned again
+            previous.sentNanos = 0;
+            missedCount++;
+            gapNanos = Math.min(gapNanos * 2, MAX_GAP_NANOS);
+        }
+    }
+
+    /**
+     * @return when the report was last requested, unlike the round trip it is kept once the answer is late,
+     * 0 if it never was
+     */
+    long getRequestedNanos(byte command, short index) {
+        for (PollEntry entry : entries) {
+            if (entry.command == command && entry.index == index) {
+                return entry.requestedNanos;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return true if the answered request was the last one sent, so the next one may go out immediately
+     */
+    boolean onResponse(byte command, short index, int length, long now) {
+        for (PollEntry entry : entries) {
+            if (entry.command == command && entry.index == index) {
+                receivedBytesByTier.addAndGet(entry.tier.ordinal(), length);
+                //only the answer to a request sent after the refresh ends it
+                long refresh = entry.refreshNanos;
+                if (refresh != 0 && entry.requestedNanos - refresh > 0) {
+                    entry.refreshNanos = 0;
+                }
+                long sent = entry.sentNanos;
+                if (sent == 0) {
+                    return false;
+                }
+                entry.sentNanos = 0;
+                long roundTrip = roundTripNanos + (now - sent - roundTripNanos) / 8;
+                roundTripNanos = roundTrip;
+                gapNanos = Math.clamp(roundTrip + roundTrip / 4, MIN_GAP_NANOS, MAX_GAP_NANOS);
+                if (entry == lastSent) {
+                    lastAnsweredNanos = now;
+                    return true;
+                }
+                return false;
+            }
+        }
+        return false;
+    }
+
+    void setEnabled(byte command, boolean enabled) {
+        for (PollEntry entry : entries) {
+            if (entry.command == command) {
+                entry.enabled = enabled;
+            }
+        }
+    }
+
+    void setSubscribed(Set<Byte> commands) {
+        for (PollEntry entry : entries) {
+            boolean subscribed = commands.contains(entry.command);
+            if (subscribed && !entry.subscribed) {
+                //newly shown, fetch it right away
+                entry.deadline = 0;
+            }
+            entry.subscribed = subscribed;
+        }
+    }
+
+    /**
+     * Requests every report of the tier right away and keeps requesting each one, subscribed or not,
+     * until it is answered once. Writes are confirmed by reports no tab may be showing.
+     */
+    void refresh(Tier tier) {
+        long now = System.nanoTime();
+        for (PollEntry entry : entries) {
+            if (entry.tier == tier) {
+                entry.deadline = 0;
+                entry.refreshNanos = now;
+            }
+        }
+    }
+
+    void reset() {
+        for (PollEntry entry : entries) {
+            entry.deadline = 0;
+            entry.sentNanos = 0;
+            entry.refreshNanos = 0;
+        }
+        lastSent = null;
+        hasSent = false;
+        gapNanos = MAX_GAP_NANOS;
+        roundTripNanos = MAX_GAP_NANOS;
+    }
+
+    long getGapNanos() {
+        return gapNanos;
+    }
+
+    long getRoundTripNanos() {
+        return roundTripNanos;
+    }
+
+    long getSentCount() {
+        return sentCount;
+    }
+
+    long getMissedCount() {
+        return missedCount;
+    }
+
+    long getSentCount(Tier tier) {
+        return sentByTier.get(tier.ordinal());
+    }
+
+    long getReceivedBytes(Tier tier) {
+        return receivedBytesByTier.get(tier.ordinal());
+    }
+
+    String getStatistics() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("gap=").append(TimeUnit.NANOSECONDS.toMicros(gapNanos)).append("us");
+        sb.append(" rtt=").append(TimeUnit.NANOSECONDS.toMicros(roundTripNanos)).append("us");
+        sb.append(" sent=").append(sentCount);
+        sb.append(" missed=").append(missedCount);
+        for (Tier tier : Tier.values()) {
+            long sent = getSentCount(tier);
+            sb.append(' ').append(tier).append("{sent=").append(sent);
+            if (sentCount > 0) {
+                sb.append(String.format(" (%.1f%%)", sent * 100.0 / sentCount));
+            }
+            sb.append(", receivedBytes=").append(getReceivedBytes(tier)).append('}');
+        }
+        return sb.toString();
+    }
+
+    enum Tier {
+        LIVE,
+        CONFIG
+    }
+
+    static final class PollEntry {
+        private final byte command;
+        private final byte index;
+        private final Tier tier;
+        private final long periodNanos;
+        private volatile boolean enabled = true;
+        private volatile boolean subscribed = true;
+        //when a refresh asked for it, 0 once that was answered
+        private volatile long refreshNanos;
+        private volatile long sentNanos;
+        private volatile long requestedNanos;
+        private volatile long deadline;
+
+        PollEntry(byte command, byte index, Tier tier, long periodMillis) {
+            this.command = command;
+            this.index = index;
+            this.tier = tier;
+            this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+        }
+
+        byte getCommand() {
+            return command;
+        }
+
+        byte getIndex() {
+            return index;
+        }
+
+        Tier getTier() {
+            return tier;
+        }
+    }
+}
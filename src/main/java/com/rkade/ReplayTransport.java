@@ -0,0 +1,122 @@
+package com.rkade;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Plays recorded input reports back with their original timing, or a multiple of it, as if the
+ * device sent them. Reports always arrive in recorded order, paced against the start of the
+ * replay so delays do not add up. Output reports are counted and dropped, a recording can not
+ * answer them. The device is removed once the recording ends.
+ */
+public final class ReplayTransport extends AbstractTransport {
+    private final static Logger logger = Logger.getLogger(ReplayTransport.class.getName());
+    private final String name;
+    private final Iterable<CapturedReport> reports;
+    private final CompletableFuture<Long> finished = new CompletableFuture<>();
+    private volatile double speed = 1;
+    private volatile Thread player;
+    private volatile boolean closed = false;
+
+    public ReplayTransport(String name, Iterable<CapturedReport> reports) {
+        this.name = name;
+        this.reports = reports;
+    }
+
+    @Override
+    public String getPath() {
+        return "replay:" + name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param speed multiple of the recorded pace, 0 to play as fast as possible
+     */
+    public void setSpeed(double speed) {
+        if (speed < 0 || Double.isNaN(speed)) {
+            throw new IllegalArgumentException("Speed out of range: " + speed);
+        }
+        this.speed = speed;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * @return completes with the number of reports played once the replay ended and the device is removed
+     */
+    public CompletableFuture<Long> getFinished() {
+        return finished;
+    }
+
+    @Override
+    public synchronized void open() {
+        if (player == null && !closed) {
+            player = Thread.ofVirtual().name("replay " + name).start(this::play);
+        }
+    }
+
+    private void play() {
+        Iterator<CapturedReport> it = reports.iterator();
+        long start = System.nanoTime();
+        long first = 0;
+        long count = 0;
+        long played = 0;
+        double pace = speed;
+        while (!closed && it.hasNext()) {
+            CapturedReport report = it.next();
+            if (count++ == 0) {
+                first = report.timestampNanos();
+            }
+            if (speed != pace) {
+                //restart the clock at this report, the change applies from here on
+                pace = speed;
+                start = System.nanoTime();
+                first = report.timestampNanos();
+            }
+            if (pace > 0) {
+                long due = start + (long) ((report.timestampNanos() - first) / pace);
+                long wait;
+                while (!closed && (wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            if (!closed) {
+                received(report.reportId(), report.data(), report.data().length);
+                played++;
+            }
+        }
+        logger.info("replay of " + name + " done, " + played + " reports");
+        close();
+        finished.complete(played);
+    }
+
+    @Override
+    protected int write(byte reportId, byte[] data, int length) {
+        return closed ? -1 : length;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        Thread thread = player;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        } else {
+            finished.complete(0L);
+        }
+        removed();
+    }
+}
@@ -0,0 +1,97 @@
+package com.rkade;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Remembers the last raw payload per report index and section, so input reports
+ * identical to the previous one can be dropped before they are decoded.
+ * Only the input report thread calls {@link #isChanged}, invalidation may come from any thread.
+ */
+final class ReportChangeFilter {
+    private final static int MAX_SECTIONS = 32;
+    private final byte[][][] payloads = new byte[256][][];
+    private final AtomicLongArray suppressedByIndex = new AtomicLongArray(256);
+    private final AtomicLong generation = new AtomicLong();
+    private long seenGeneration;
+    private volatile long passedCount;
+    private volatile long suppressedCount;
+
+    /**
+     * @param data input report payload, starting with the report index and section
+     * @return false when the payload is identical to the last one seen for the same index and section
+     */
+    boolean isChanged(byte[] data, int len) {
+        long current = generation.get();
+        if (current != seenGeneration) {
+            seenGeneration = current;
+            for (byte[][] sections : payloads) {
+                if (sections != null) {
+                    Arrays.fill(sections, null);
+                }
+            }
+        }
+        if (len < 3) {
+            passedCount++;
+            return true;
+        }
+        int index = data[0] & 0xff;
+        int section = (data[1] & 0xff) | (data[2] << 8);
+        if (section < 0 || section >= MAX_SECTIONS) {
+            passedCount++;
+            return true;
+        }
+        byte[][] sections = payloads[index];
+        if (sections == null) {
+            sections = new byte[MAX_SECTIONS][];
+            payloads[index] = sections;
+        }
+        byte[] last = sections[section];
+        if (last != null && last.length == len) {
+            if (Arrays.equals(last, 0, len, data, 0, len)) {
+                suppressedCount++;
+                suppressedByIndex.incrementAndGet(index);
+                return false;
+            }
+        } else {
+            last = new byte[len];
+            sections[section] = last;
+        }
+        System.arraycopy(data, 0, last, 0, len);
+        passedCount++;
+        return true;
+    }
+
+    /**
+     * Lets the next report of every section through, e.g. after a write or when a new consumer shows up.
+     */
+    void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    long getPassedCount() {
+        return passedCount;
+    }
+
+    long getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    long getSuppressedCount(byte reportIndex) {
+        return suppressedByIndex.get(reportIndex & 0xff);
+    }
+
+    String getStatistics() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("passed=").append(passedCount);
+        sb.append(" suppressed=").append(suppressedCount);
+        for (int i = 0; i < suppressedByIndex.length(); i++) {
+            long suppressed = suppressedByIndex.get(i);
+            if (suppressed > 0) {
+                sb.append(" [").append(i).append("]=").append(suppressed);
+            }
+        }
+        return sb.toString();
+    }
+}
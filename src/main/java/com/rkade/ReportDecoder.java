@@ -0,0 +1,60 @@
+package com.rkade;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Garbage free counterpart of {@link DataReportFactory#create(byte, byte[])}. Reports are decoded in place
+ * into one reused holder per report type, so a decoder must only be used by a single thread and listeners
+ * that keep a report beyond the callback must take a {@link DataReport#snapshot()}.
+ */
+public final class ReportDecoder {
+    private final WheelDataReport wheelReport = new WheelDataReport();
+    private final AxisDataReport axisReport = new AxisDataReport();
+    private final GainsDataReport gainsReport = new GainsDataReport();
+    private final MiscDataReport miscReport = new MiscDataReport();
+    private final ButtonsDataReport buttonsReport = new ButtonsDataReport();
+    private final VersionDataReport versionReport = new VersionDataReport();
+    private byte[] wrapped;
+    private ByteBuffer buffer;
+
+    public DataReport decode(byte reportType, byte[] data, int len) {
+        if (reportType != Device.DATA_REPORT_ID) {
+            return null;
+        }
+        if (data != wrapped) {
+            //callers usually hand in the same array every time, only wrap a new one
+            wrapped = data;
+            buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.clear();
+        buffer.limit(Math.min(len, data.length));
+        return decode(reportType, buffer);
+    }
+
+    /**
+     * Decodes the report between the position and the limit of a little endian buffer, for reports
+     * read in place like the records of a capture.
+     */
+    public DataReport decode(byte reportType, ByteBuffer buffer) {
+        if (reportType != Device.DATA_REPORT_ID) {
+            return null;
+        }
+        byte reportIndex = buffer.get();
+        short section = buffer.getShort();
+
+        DataReport report = switch (reportIndex) {
+            case Device.CMD_GET_STEER -> wheelReport;
+            case Device.CMD_GET_ANALOG -> axisReport;
+            case Device.CMD_GET_GAINS -> gainsReport;
+            case Device.CMD_GET_MISC -> miscReport;
+            case Device.CMD_GET_BUTTONS -> buttonsReport;
+            case Device.CMD_GET_VER -> versionReport;
+            default -> null;
+        };
+        if (report != null) {
+            report.decode(reportType, reportIndex, section, buffer);
+        }
+        return report;
+    }
+}
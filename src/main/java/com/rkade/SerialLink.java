@@ -0,0 +1,186 @@
+package com.rkade;
+
+import com.fazecast.jSerialComm.SerialPort;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * The serial port of a device, opened once and kept open until the device goes away.
+ * Text commands are written in call order by one writer thread, so callers can queue several
+ * without waiting. The firmware does not acknowledge text commands, a write only tells the bytes went out.
+ * A reader thread hands each line received to the oldest request it answers, the firmware also prints
+ * lines of its own, e.g. while running autocenter, and those are dropped.
+ */
+final class SerialLink {
+    private final static Logger logger = Logger.getLogger(SerialLink.class.getName());
+    private final static int BAUD_RATE = 9600;
+    private final static int OPEN_SAFETY_SLEEP = 500;
+    private final SerialPort port;
+    private final Queue<Request> waitingForReply = new ConcurrentLinkedQueue<>();
+    private final LatencyStats replyLatency = new LatencyStats();
+    private ExecutorService writer;
+    private Thread reader;
+    private boolean closed = false;
+
+    SerialLink(SerialPort port) {
+        this.port = port;
+    }
+
+    SerialPort getPort() {
+        return port;
+    }
+
+    /**
+     * @return completes with true once the text was written to the port, false if it could not be, never
+     * exceptionally. Nothing tells whether the device received or carried out the command.
+     */
+    CompletableFuture<Boolean> write(String text) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        if (!submit(() -> future.complete(writeBytes(text)))) {
+            future.complete(false);
+        }
+        return future;
+    }
+
+    /**
+     * Writes the text and completes with the next line the device sends back that isReply accepts, or
+     * exceptionally with a TimeoutException when none comes in time.
+     */
+    CompletableFuture<String> request(String text, Predicate<String> isReply, long timeoutMillis) {
+        Request request = new Request(new CompletableFuture<>(), isReply, System.nanoTime());
+        boolean submitted = submit(() -> {
+            //registered before writing, the reply may be read before writeBytes returns
+            waitingForReply.add(request);
+            if (!writeBytes(text)) {
+                waitingForReply.remove(request);
+                request.future.completeExceptionally(new IOException("Could not write to " + port.getSystemPortPath()));
+            }
+        });
+        if (!submitted) {
+            request.future.completeExceptionally(new IOException("Serial port not open: " + port.getSystemPortPath()));
+        }
+        request.future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                //a late reply must not be taken for the answer to the next request
+                .whenComplete((reply, ex) -> waitingForReply.remove(request));
+        return request.future;
+    }
+
+    /**
+     * @return false if the port could not be opened or the link is closed
+     */
+    private synchronized boolean submit(Runnable task) {
+        if (!open()) {
+            return false;
+        }
+        try {
+            writer.execute(task);
+            return true;
+        } catch (RejectedExecutionException ex) {
+            return false;
+        }
+    }
+
+    private boolean open() {
+        if (closed) {
+            return false;
+        }
+        if (writer != null) {
+            return true;
+        }
+        port.setBaudRate(BAUD_RATE);
+        port.setParity(SerialPort.NO_PARITY);
+        port.setNumStopBits(SerialPort.ONE_STOP_BIT);
+        port.setNumDataBits(8);
+        if (!port.openPort(OPEN_SAFETY_SLEEP)) {
+            logger.warning("Serial port could not be opened: " + port.getSystemPortPath());
+            return false;
+        }
+        port.setComPortTimeouts(SerialPort.TIMEOUT_READ_BLOCKING, 0, 0);
+        writer = Executors.newSingleThreadExecutor(Thread.ofVirtual()
+                .name("serial writer " + port.getSystemPortName()).factory());
+        //the read blocks in native code, which would pin a virtual thread to its carrier for good
+        reader = Thread.ofPlatform().daemon().name("serial reader " + port.getSystemPortName()).start(this::readLines);
+        return true;
+    }
+
+    private boolean writeBytes(String text) {
+        byte[] value = text.getBytes(StandardCharsets.US_ASCII);
+        return port.writeBytes(value, value.length) == value.length;
+    }
+
+    private void readLines() {
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(port.getInputStream(),
+                StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                String reply = line.trim();
+                Request request = replyTo(reply);
+                if (request == null) {
+                    logger.fine("Unrequested line from " + port.getSystemPortPath() + ": " + line);
+                } else {
+                    replyLatency.record(System.nanoTime() - request.sentNanos);
+                    request.future.complete(reply);
+                }
+            }
+        } catch (IOException ex) {
+            if (port.isOpen()) {
+                logger.warning("Serial read failed: " + ex.getMessage());
+            }
+        }
+        failWaiting();
+    }
+
+    /**
+     * @return the oldest request waiting for the line, removed from the waiting ones, null if none is
+     */
+    private Request replyTo(String line) {
+        for (Request request : waitingForReply) {
+            if (request.isReply.test(line) && waitingForReply.remove(request)) {
+                return request;
+            }
+        }
+        return null;
+    }
+
+    private void failWaiting() {
+        Request request;
+        while ((request = waitingForReply.poll()) != null) {
+            request.future.completeExceptionally(new IOException("Serial link closed"));
+        }
+    }
+
+    LatencyStats getReplyLatency() {
+        return replyLatency;
+    }
+
+    /**
+     * Closes the port, commands still queued complete as failed.
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (writer != null) {
+            writer.shutdown();
+            port.closePort();
+            reader.interrupt();
+        }
+        failWaiting();
+    }
+
+    private record Request(CompletableFuture<String> future, Predicate<String> isReply, long sentNanos) {
+    }
+}
@@ -0,0 +1,350 @@
+package com.rkade;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Software stand-in for a wheel board, speaking the same HID protocol: 7 byte output reports on
+ * {@link Device#CMD_REPORT_ID} are executed and get reports are answered with encoded
+ * {@link Device#DATA_REPORT_ID} payloads. Settings, EEPROM save/load and defaults behave like the
+ * firmware, the wheel, axes and buttons move on their own. Answers can be delayed, jittered and lost.
+ * <p>
+ * Attach it with {@link DeviceManager#attach(DeviceTransport)}.
+ */
+public final class SimulatedDevice extends AbstractTransport {
+    private final static Logger logger = Logger.getLogger(SimulatedDevice.class.getName());
+    private final static int OUTPUT_REPORT_LENGTH = 7;
+    private final static int INPUT_REPORT_LENGTH = 64;
+    private final static String FIRMWARE_ID = Device.SUPPORTED_FIRMWARE_TYPE;
+    private final static String FIRMWARE_VERSION = "sim";
+    private final static long WHEEL_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(4);
+    private final static long AXIS_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private final static long BUTTON_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private final String name;
+    private final String path;
+    private final long startNanos = System.nanoTime();
+    private final ScheduledExecutorService answers;
+    private final Random random;
+    private final AtomicLong lostReportCount = new AtomicLong();
+    private final AtomicInteger writesToDrop = new AtomicInteger();
+    private volatile DeviceConfig settings = defaults();
+    private volatile DeviceConfig eeprom = settings;
+    private volatile long latencyNanos = 0;
+    private volatile long jitterNanos = 0;
+    private volatile double lossRate = 0;
+    private volatile long storageNanos = 0;
+    private volatile boolean closed = false;
+    //only touched by the thread writing output reports
+    private long busyUntil = startNanos;
+    private long lastAnswerAt = startNanos;
+
+    public SimulatedDevice(String name) {
+        this(name, new Random());
+    }
+
+    /**
+     * @param random source of jitter and loss, seeded for reproducible runs
+     */
+    public SimulatedDevice(String name, Random random) {
+        this.name = name;
+        this.path = "sim:" + name;
+        this.random = random;
+        answers = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon()
+                .name("simulated " + name).factory());
+    }
+
+    private static DeviceConfig defaults() {
+        List<DeviceCommand> commands = new ArrayList<>();
+        commands.add(new DeviceCommand(Device.CMD_SET_RANGE, (short) 900));
+        commands.add(new DeviceCommand(Device.CMD_WHEEL_LIMITS, (short) -32767, (short) 32767));
+        commands.add(new DeviceCommand(Device.CMD_WHEEL_CENTER, (short) 0));
+        commands.add(new DeviceCommand(Device.CMD_WHEEL_DZ, (short) 0));
+        commands.add(new DeviceCommand(Device.CMD_WHEEL_AUTO_LIMIT, (short) 0));
+        commands.add(new DeviceCommand(Device.CMD_WHEEL_TRIM, (short) 0));
+        commands.add(new DeviceCommand(Device.CMD_WHEEL_INVERT, (short) 0));
+        for (short i = 0; i < Device.AXIS_COUNT; i++) {
+            commands.add(new DeviceCommand(Device.CMD_SET_AALIMITS, i, (short) 0, (short) 1023));
+            commands.add(new DeviceCommand(Device.CMD_SET_AACENTER, i, Short.MIN_VALUE));
+            commands.add(new DeviceCommand(Device.CMD_SET_AADZ, i, (short) 0));
+            commands.add(new DeviceCommand(Device.CMD_SET_AAAUTOLIM, i, (short) 0));
+            commands.add(new DeviceCommand(Device.CMD_SET_ODTRIM, i, (short) 0, (short) 0));
+        }
+        for (short i = 0; i < DeviceConfig.GAIN_COUNT; i++) {
+            commands.add(new DeviceCommand(Device.CMD_SET_GAIN, i, (short) 1024));
+        }
+        for (short i = 0; i <= Device.MISC_MPLEX_SHIFTER; i++) {
+            commands.add(new DeviceCommand(Device.CMD_SET_MISC, i, (short) 0));
+        }
+        commands.add(new DeviceCommand(Device.CMD_SET_MISC, Device.MISC_FFBBD, (short) 16));
+        commands.add(new DeviceCommand(Device.CMD_SET_DEBOUNCE, (short) 0));
+        commands.add(new DeviceCommand(Device.CMD_SET_SHIFT_BTN, (short) -1));
+        return DeviceConfig.empty().with(commands);
+    }
+
+    /**
+     * @param latencyMicros time from a get report request to its answer
+     * @param jitterMicros  random extra time added to each answer, answers still arrive in order
+     */
+    public void setLatency(long latencyMicros, long jitterMicros) {
+        latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        jitterNanos = TimeUnit.MICROSECONDS.toNanos(jitterMicros);
+    }
+
+    /**
+     * @param lossRate chance of an output report or its answer getting lost, 0..1
+     */
+    public void setLossRate(double lossRate) {
+        this.lossRate = lossRate;
+    }
+
+    /**
+     * @param count how many of the next setting writes get lost, get report requests still go through
+     */
+    public void dropWrites(int count) {
+        writesToDrop.set(count);
+    }
+
+    /**
+     * @param millis how long the board does not answer after EESAVE, EELOAD or DEFAULT
+     */
+    public void setStorageTime(long millis) {
+        storageNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public DeviceConfig getSettings() {
+        return settings;
+    }
+
+    public DeviceConfig getEeprom() {
+        return eeprom;
+    }
+
+    public long getLostReportCount() {
+        return lostReportCount.get();
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void open() {
+    }
+
+    @Override
+    protected synchronized int write(byte reportId, byte[] data, int length) {
+        if (closed || reportId != Device.CMD_REPORT_ID || length < OUTPUT_REPORT_LENGTH) {
+            return -1;
+        }
+        if (isLost()) {
+            return length;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, OUTPUT_REPORT_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        byte command = buffer.get();
+        short arg1 = buffer.getShort();
+        short arg2 = buffer.getShort();
+        short arg3 = buffer.getShort();
+        long now = System.nanoTime();
+        if (command >= Device.CMD_GET_VER && command <= Device.CMD_GET_MISC) {
+            //busy with the EEPROM, requests go unanswered
+            if (now - busyUntil >= 0) {
+                answer(command, (byte) arg1, now);
+            }
+        } else if (writesToDrop.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+            lostReportCount.incrementAndGet();
+        } else {
+            execute(new DeviceCommand(command, arg1, arg2, arg3), now);
+        }
+        return length;
+    }
+
+    private boolean isLost() {
+        if (lossRate > 0 && random.nextDouble() < lossRate) {
+            lostReportCount.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private void execute(DeviceCommand command, long now) {
+        switch (command.getCommand()) {
+            case Device.CMD_EESAVE -> {
+                eeprom = settings;
+                busyUntil = now + storageNanos;
+            }
+            case Device.CMD_EELOAD -> {
+                settings = eeprom;
+                busyUntil = now + storageNanos;
+            }
+            case Device.CMD_DEFAULT -> {
+                settings = defaults();
+                busyUntil = now + storageNanos;
+            }
+            case Device.CMD_CENTER -> settings = settings.with(new DeviceCommand(Device.CMD_WHEEL_CENTER,
+                    (short) (wheelPosition(now) + get(Device.CMD_WHEEL_CENTER).getArg1())));
+            default -> {
+                if (command.getCoalesceKey() >= 0) {
+                    settings = settings.with(command);
+                } else {
+                    logger.fine(name + " ignores unknown command:" + command);
+                }
+            }
+        }
+    }
+
+    private void answer(byte command, byte index, long now) {
+        if (command == Device.CMD_GET_ANALOG && (index < 0 || index >= Device.AXIS_COUNT)) {
+            return;
+        }
+        byte[] report = new byte[INPUT_REPORT_LENGTH];
+        encode(ByteBuffer.wrap(report).order(ByteOrder.LITTLE_ENDIAN), command, index, now);
+        if (isLost()) {
+            return;
+        }
+        long delay = latencyNanos + (jitterNanos > 0 ? (long) (random.nextDouble() * jitterNanos) : 0);
+        //like on the bus, answers never overtake each other
+        long answerAt = Math.max(now + delay, lastAnswerAt);
+        lastAnswerAt = answerAt;
+        answers.schedule(() -> deliver(report), answerAt - now, TimeUnit.NANOSECONDS);
+    }
+
+    private void deliver(byte[] report) {
+        if (!closed) {
+            received(Device.DATA_REPORT_ID, report, report.length);
+        }
+    }
+
+    private void encode(ByteBuffer buffer, byte command, byte index, long now) {
+        DeviceConfig config = settings;
+        buffer.put(command).putShort(index);
+        switch (command) {
+            case Device.CMD_GET_VER -> {
+                putString(buffer, FIRMWARE_ID, 6);
+                putString(buffer, FIRMWARE_VERSION, 12);
+            }
+            case Device.CMD_GET_STEER -> {
+                short value = wheelPosition(now);
+                DeviceCommand limits = get(Device.CMD_WHEEL_LIMITS);
+                buffer.putInt(value + get(Device.CMD_WHEEL_CENTER).getArg1())
+                        .putShort(value)
+                        .putShort(get(Device.CMD_SET_RANGE).getArg1())
+                        .putShort((short) (wheelPosition(now + 1_000_000) - value))
+                        .putShort((short) 0)
+                        .putShort(limits.getArg1())
+                        .putShort(limits.getArg2())
+                        .putShort(get(Device.CMD_WHEEL_CENTER).getArg1())
+                        .putShort(get(Device.CMD_WHEEL_DZ).getArg1())
+                        .put((byte) get(Device.CMD_WHEEL_AUTO_LIMIT).getArg1())
+                        .put((byte) get(Device.CMD_WHEEL_TRIM).getArg1())
+                        .put((byte) get(Device.CMD_WHEEL_INVERT).getArg1());
+            }
+            case Device.CMD_GET_ANALOG -> {
+                DeviceCommand limits = get(Device.CMD_SET_AALIMITS, index);
+                short center = get(Device.CMD_SET_AACENTER, index).getArg2();
+                DeviceCommand odTrim = get(Device.CMD_SET_ODTRIM, index);
+                short value = axisPosition(now, index, limits.getArg2(), limits.getArg3());
+                buffer.putShort(value)
+                        .putShort(value)
+                        .putShort(limits.getArg2())
+                        .putShort(limits.getArg3())
+                        .putShort(center == Short.MIN_VALUE ? 0 : center)
+                        .putShort(get(Device.CMD_SET_AADZ, index).getArg2())
+                        .put((byte) get(Device.CMD_SET_AAAUTOLIM, index).getArg2())
+                        .put((byte) (center == Short.MIN_VALUE ? 0 : 1))
+                        //disabled flag
+                        .put((byte) odTrim.getArg2())
+                        .put((byte) odTrim.getArg3());
+            }
+            case Device.CMD_GET_BUTTONS -> buffer.putInt(1 << (int) ((now - startNanos) / BUTTON_PERIOD_NANOS % 32))
+                    .put((byte) get(Device.CMD_SET_SHIFT_BTN).getArg1())
+                    .put((byte) get(Device.CMD_SET_DEBOUNCE).getArg1())
+                    .put((byte) get(Device.CMD_SET_MISC, Device.MISC_MPLEX_SHIFTER).getArg2());
+            case Device.CMD_GET_GAINS -> {
+                for (short i = 0; i < DeviceConfig.GAIN_COUNT; i++) {
+                    buffer.putShort(get(Device.CMD_SET_GAIN, i).getArg2());
+                }
+            }
+            case Device.CMD_GET_MISC -> {
+                for (short i = Device.MISC_MAXVD; i <= Device.MISC_CUTF; i++) {
+                    buffer.putShort(get(Device.CMD_SET_MISC, i).getArg2());
+                }
+                DeviceCommand endStop = get(Device.CMD_SET_MISC, Device.MISC_ENDSTOP);
+                buffer.put((byte) get(Device.CMD_SET_MISC, Device.MISC_FFBBD).getArg2())
+                        .putShort(endStop.getArg2())
+                        .putShort(endStop.getArg3())
+                        .put((byte) get(Device.CMD_SET_MISC, Device.MISC_CONSTANT_SPRING).getArg2())
+                        .put((byte) get(Device.CMD_SET_MISC, Device.MISC_AFC_STARTUP).getArg2());
+            }
+            default -> {
+            }
+        }
+    }
+
+    private DeviceCommand get(byte command) {
+        return settings.get(new DeviceCommand(command));
+    }
+
+    private DeviceCommand get(byte command, short index) {
+        return settings.get(new DeviceCommand(command, index));
+    }
+
+    private short wheelPosition(long now) {
+        double phase = (double) ((now - startNanos) % WHEEL_PERIOD_NANOS) / WHEEL_PERIOD_NANOS;
+        return (short) (Math.sin(phase * 2 * Math.PI) * Short.MAX_VALUE / 2);
+    }
+
+    private short axisPosition(long now, int index, short min, short max) {
+        //each axis a bit behind the previous one, up and down between its limits
+        long period = AXIS_PERIOD_NANOS;
+        double phase = (double) ((now - startNanos + index * period / Device.AXIS_COUNT) % period) / period;
+        double triangle = phase < 0.5 ? phase * 2 : 2 - phase * 2;
+        return (short) (min + (max - min) * triangle);
+    }
+
+    private static void putString(ByteBuffer buffer, String value, int bytes) {
+        byte[] text = value.getBytes(StandardCharsets.ISO_8859_1);
+        int length = Math.min(text.length, bytes);
+        buffer.put(text, 0, length);
+        buffer.position(buffer.position() + bytes - length);
+    }
+
+    /**
+     * Unplugs the device, the connection using it is told it was removed.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        answers.shutdownNow();
+        removed();
+    }
+
+    @Override
+    public String toString() {
+        return "SimulatedDevice{" +
+                "name='" + name + '\'' +
+                ", lost=" + lostReportCount +
+                ", " + getStats() +
+                '}';
+    }
+}
@@ -0,0 +1,121 @@
+package com.rkade;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.logging.Logger;
+
+/**
+ * Client side of the socket bridge, a device served by a {@link TcpTransportServer}.
+ * Reports travel as frames of report id, big endian length and payload; the server
+ * first sends the device name.
+ */
+public final class TcpTransport extends AbstractTransport {
+    private final static Logger logger = Logger.getLogger(TcpTransport.class.getName());
+    private final static int CONNECT_TIMEOUT = 2000;
+    private final String host;
+    private final int port;
+    private volatile String name;
+    private volatile Socket socket;
+    private volatile DataOutputStream out;
+    private volatile boolean closed = false;
+
+    public TcpTransport(String host, int port) {
+        this.host = host;
+        this.port = port;
+        this.name = host + ":" + port;
+    }
+
+    static void writeFrame(DataOutputStream out, byte reportId, byte[] data, int length) throws IOException {
+        out.writeByte(reportId);
+        out.writeShort(length);
+        out.write(data, 0, length);
+        out.flush();
+    }
+
+    /**
+     * @return payload length, the payload is read into data
+     */
+    static int readFrame(DataInputStream in, byte[] header, byte[] data) throws IOException {
+        in.readFully(header, 0, 3);
+        int length = ((header[1] & 0xff) << 8) | (header[2] & 0xff);
+        if (length > data.length) {
+            throw new IOException("Frame too long: " + length);
+        }
+        in.readFully(data, 0, length);
+        return length;
+    }
+
+    @Override
+    public String getPath() {
+        return "tcp:" + host + ":" + port;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void open() throws IOException {
+        Socket connected = new Socket();
+        connected.setTcpNoDelay(true);
+        connected.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(connected.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(connected.getOutputStream()));
+        name = in.readUTF();
+        socket = connected;
+        Thread.ofVirtual().name("tcp " + getPath()).start(() -> readReports(in));
+    }
+
+    private void readReports(DataInputStream in) {
+        byte[] header = new byte[3];
+        byte[] data = new byte[TcpTransportServer.MAX_FRAME_LENGTH];
+        try {
+            while (!closed) {
+                int length = readFrame(in, header, data);
+                received(header[0], data, length);
+            }
+        } catch (IOException ex) {
+            if (!closed) {
+                logger.warning(getPath() + " disconnected: " + ex.getMessage());
+            }
+        }
+        close();
+    }
+
+    @Override
+    protected int write(byte reportId, byte[] data, int length) {
+        DataOutputStream stream = out;
+        if (stream == null || closed) {
+            return -1;
+        }
+        try {
+            synchronized (stream) {
+                writeFrame(stream, reportId, data, length);
+            }
+            return length;
+        } catch (IOException ex) {
+            logger.warning(getPath() + " write failed: " + ex.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        Socket connected = socket;
+        if (connected != null) {
+            try {
+                connected.close();
+            } catch (IOException ignored) {
+            }
+        }
+        removed();
+    }
+}
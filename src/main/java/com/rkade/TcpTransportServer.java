@@ -0,0 +1,101 @@
+package com.rkade;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.logging.Logger;
+
+/**
+ * Serves one device over a loopback socket to a {@link TcpTransport}, one client at a time.
+ * Output reports from the client are written to the device, its input reports are sent back.
+ */
+public final class TcpTransportServer implements Closeable {
+    static final int MAX_FRAME_LENGTH = 1024;
+    private final static Logger logger = Logger.getLogger(TcpTransportServer.class.getName());
+    private final DeviceTransport device;
+    private final ServerSocket serverSocket;
+    private volatile DataOutputStream client;
+    private volatile boolean closed = false;
+
+    /**
+     * @param port 0 to pick a free one
+     */
+    public TcpTransportServer(DeviceTransport device, int port) throws IOException {
+        this.device = device;
+        this.serverSocket = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void start() throws IOException {
+        device.setInputReportListener(this::forward);
+        device.setRemovalListener(this::close);
+        device.open();
+        Thread.ofVirtual().name("tcp server " + getPort()).start(this::acceptClients);
+    }
+
+    private void acceptClients() {
+        while (!closed) {
+            try (Socket socket = serverSocket.accept()) {
+                socket.setTcpNoDelay(true);
+                logger.info("client connected to " + device.getName() + ": " + socket.getRemoteSocketAddress());
+                serve(socket);
+            } catch (IOException ex) {
+                if (!closed) {
+                    logger.warning("client of " + device.getName() + " lost: " + ex.getMessage());
+                }
+            } finally {
+                client = null;
+            }
+        }
+    }
+
+    private void serve(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeUTF(device.getName());
+        out.flush();
+        client = out;
+        byte[] header = new byte[3];
+        byte[] data = new byte[MAX_FRAME_LENGTH];
+        try {
+            while (!closed) {
+                int length = TcpTransport.readFrame(in, header, data);
+                device.setOutputReport(header[0], data, length);
+            }
+        } catch (EOFException ex) {
+            logger.info("client disconnected from " + device.getName());
+        }
+    }
+
+    private void forward(byte reportId, byte[] data, int length) {
+        DataOutputStream out = client;
+        if (out == null) {
+            return;
+        }
+        try {
+            synchronized (out) {
+                TcpTransport.writeFrame(out, reportId, data, length);
+            }
+        } catch (IOException ex) {
+            //the accept loop notices too and waits for the next client
+            client = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+        }
+        device.close();
+    }
+}
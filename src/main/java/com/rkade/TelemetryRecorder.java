@@ -0,0 +1,205 @@
+package com.rkade;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import static com.rkade.Device.DATA_REPORT_ID;
+
+/**
+ * Records the raw data reports of one device into memory mapped segment files, read back
+ * with {@link CaptureReader}.
+ * <p>
+ * The report callback only copies the report into a ring and returns, it never waits for the disk.
+ * If the writer falls a whole ring behind, reports are dropped and counted instead.
+ * <p>
+ * Segment layout, little endian: a header of magic, version, header size, segment sequence and the
+ * recording start in epoch milliseconds, then records of nanoseconds since the start, report id,
+ * payload length and payload. A zero length, or the end of the file, ends the segment.
+ */
+public final class TelemetryRecorder implements DeviceTransport.InputReportListener, Closeable {
+    private final static Logger logger = Logger.getLogger(TelemetryRecorder.class.getName());
+    final static int MAGIC = 0x50434B52;
+    final static short VERSION = 1;
+    final static int HEADER_SIZE = 24;
+    final static int RECORD_HEADER_SIZE = 11;
+    final static int MAX_PAYLOAD = 64;
+    final static String SEGMENT_SUFFIX = ".rkcap";
+    public final static long DEFAULT_SEGMENT_SIZE = 64L << 20;
+    private final static int RING_SIZE = 4096;
+    private final static long DRAIN_PERIOD = 1_000_000L;
+    private final Path directory;
+    private final long segmentSize;
+    private final long startNanos = System.nanoTime();
+    private final long startMillis = System.currentTimeMillis();
+    //single producer, single consumer ring, tail is only written by the report callback
+    private final byte[] payloads = new byte[RING_SIZE * MAX_PAYLOAD];
+    private final long[] timestamps = new long[RING_SIZE];
+    private final byte[] reportIds = new byte[RING_SIZE];
+    private final int[] lengths = new int[RING_SIZE];
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int sequence = 0;
+    private volatile long recorded = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * @param directory   created if missing, must not hold a capture already
+     * @param segmentSize bytes per segment file, a new one is started when it is full
+     */
+    public TelemetryRecorder(Path directory, long segmentSize) throws IOException {
+        if (segmentSize < HEADER_SIZE + RECORD_HEADER_SIZE + MAX_PAYLOAD || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size out of range: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        if (!CaptureReader.segments(directory).isEmpty()) {
+            throw new IOException(directory + " already holds a capture");
+        }
+        openSegment();
+        writer = Thread.ofVirtual().name("recorder " + directory.getFileName()).start(this::drain);
+    }
+
+    public TelemetryRecorder(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Must only be called by one thread, which is the case for the reports of one device.
+     */
+    @Override
+    public void onInputReport(byte reportId, byte[] data, int length) {
+        if (reportId != DATA_REPORT_ID || closed) {
+            return;
+        }
+        long now = System.nanoTime();
+        long t = tail.get();
+        if (t - head.getAcquire() >= RING_SIZE) {
+            dropped.incrementAndGet();
+            return;
+        }
+        int slot = (int) (t & (RING_SIZE - 1));
+        int len = Math.min(length, MAX_PAYLOAD);
+        System.arraycopy(data, 0, payloads, slot * MAX_PAYLOAD, len);
+        timestamps[slot] = now - startNanos;
+        reportIds[slot] = reportId;
+        lengths[slot] = len;
+        tail.setRelease(t + 1);
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                long h = head.get();
+                long t = tail.getAcquire();
+                if (h == t) {
+                    if (closed) {
+                        break;
+                    }
+                    LockSupport.parkNanos(DRAIN_PERIOD);
+                    continue;
+                }
+                for (; h < t; h++) {
+                    int slot = (int) (h & (RING_SIZE - 1));
+                    append(timestamps[slot], reportIds[slot], slot * MAX_PAYLOAD, lengths[slot]);
+                }
+                head.setRelease(t);
+            }
+        } catch (IOException ex) {
+            logger.warning("Recording to " + directory + " stopped: " + ex.getMessage());
+            closed = true;
+        }
+        try {
+            closeSegment();
+        } catch (IOException ex) {
+            logger.warning("Could not close " + directory + ": " + ex.getMessage());
+        }
+    }
+
+    private void append(long timestamp, byte reportId, int offset, int length) throws IOException {
+        //keep room for the zero length that ends the segment
+        if (segment.remaining() < RECORD_HEADER_SIZE * 2 + length) {
+            closeSegment();
+            openSegment();
+        }
+        segment.putLong(timestamp);
+        segment.put(reportId);
+        segment.putShort((short) length);
+        segment.put(payloads, offset, length);
+        recorded++;
+    }
+
+    private void openSegment() throws IOException {
+        Path path = directory.resolve(String.format("segment-%05d%s", sequence, SEGMENT_SUFFIX));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segment.putInt(MAGIC);
+        segment.putShort(VERSION);
+        segment.putShort((short) HEADER_SIZE);
+        segment.putInt(sequence);
+        segment.putLong(startMillis);
+        segment.position(HEADER_SIZE);
+        sequence++;
+    }
+
+    private void closeSegment() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        int end = segment.position() + RECORD_HEADER_SIZE;
+        segment.force();
+        try {
+            //the mapping still covers the rest, some systems refuse to shrink a mapped file
+            channel.truncate(end);
+        } catch (IOException ex) {
+            logger.fine("Segment keeps its full size: " + ex.getMessage());
+        }
+        channel.close();
+        channel = null;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return reports written to the segments so far
+     */
+    public long getRecordedCount() {
+        return recorded;
+    }
+
+    /**
+     * Writes what is still in the ring and closes the last segment.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("recorded " + recorded + " reports to " + directory + ", dropped " + dropped.get());
+    }
+}
@@ -0,0 +1,103 @@
+package com.rkade;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and latency of one transport, counted where the reports enter and leave it,
+ * so the protocol layer can be measured apart from what is behind the transport.
+ */
+public final class TransportStats {
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong outputReports = new AtomicLong();
+    private final AtomicLong outputBytes = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private final AtomicLong inputReports = new AtomicLong();
+    private final AtomicLong inputBytes = new AtomicLong();
+    private final LatencyStats writeLatency = new LatencyStats();
+    private final LatencyStats answerLatency = new LatencyStats();
+    //0 once the write has been answered
+    private volatile long lastWriteNanos;
+
+    void onWrite(int length, long startNanos, long endNanos) {
+        writeLatency.record(endNanos - startNanos);
+        if (length > 0) {
+            outputReports.incrementAndGet();
+            outputBytes.addAndGet(length);
+            lastWriteNanos = endNanos;
+        } else {
+            failedWrites.incrementAndGet();
+        }
+    }
+
+    void onRead(int length, long now) {
+        inputReports.incrementAndGet();
+        inputBytes.addAndGet(length);
+        long written = lastWriteNanos;
+        if (written != 0) {
+            lastWriteNanos = 0;
+            answerLatency.record(now - written);
+        }
+    }
+
+    public long getOutputReports() {
+        return outputReports.get();
+    }
+
+    public long getOutputBytes() {
+        return outputBytes.get();
+    }
+
+    public long getFailedWrites() {
+        return failedWrites.get();
+    }
+
+    public long getInputReports() {
+        return inputReports.get();
+    }
+
+    public long getInputBytes() {
+        return inputBytes.get();
+    }
+
+    /**
+     * @return time spent handing an output report to the transport
+     */
+    public LatencyStats getWriteLatency() {
+        return writeLatency;
+    }
+
+    /**
+     * @return time from an output report to the next input report, the round trip while polling
+     */
+    public LatencyStats getAnswerLatency() {
+        return answerLatency;
+    }
+
+    public double getInputReportsPerSecond() {
+        return perSecond(inputReports.get());
+    }
+
+    public double getInputBytesPerSecond() {
+        return perSecond(inputBytes.get());
+    }
+
+    private double perSecond(long count) {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0 : count * 1e9 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "TransportStats{" +
+                "out=" + outputReports.get() +
+                ", failed=" + failedWrites.get() +
+                ", in=" + inputReports.get() +
+                String.format(", inPerSec=%.1f, inBytesPerSec=%.0f", getInputReportsPerSecond(),
+                        getInputBytesPerSecond()) +
+                ", writeMeanUs=" + TimeUnit.NANOSECONDS.toMicros(writeLatency.getMeanNanos()) +
+                ", answerMeanUs=" + TimeUnit.NANOSECONDS.toMicros(answerLatency.getMeanNanos()) +
+                ", answerP99Us=" + TimeUnit.NANOSECONDS.toMicros(answerLatency.getPercentileNanos(99)) +
+                '}';
+    }
+}
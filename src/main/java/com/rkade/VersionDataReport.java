@@ -1,18 +1,37 @@
 package com.rkade;
 
 import java.nio.ByteBuffer;
+import java.util.Objects;
 
 public final class VersionDataReport extends DataReport {
-    private final String id; //6 bytes
-    private final String version; //12 bytes;
+    private String id; //6 bytes
+    private String version; //12 bytes;
 
     public VersionDataReport(byte reportType, byte reportIndex, short section, ByteBuffer buffer) {
         super(reportType, reportIndex, section);
+        decode(buffer);
+    }
+
+    VersionDataReport() {
+    }
 
+    private VersionDataReport(VersionDataReport other) {
+        super(other.reportType, (byte) other.reportIndex, other.section);
+        id = other.id;
+        version = other.version;
+    }
+
+    @Override
+    void decode(ByteBuffer buffer) {
         id = getString(buffer, 6);
         version = getString(buffer, 12);
     }
 
+    @Override
+    public VersionDataReport snapshot() {
+        return new VersionDataReport(this);
+    }
+
     public String getId() {
         return id;
     }
@@ -20,4 +39,20 @@ public final class VersionDataReport extends DataReport {
     public String getVersion() {
         return version;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof VersionDataReport that)) {
+            return false;
+        }
+        return headerEquals(that) && Objects.equals(id, that.id) && Objects.equals(version, that.version);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, version);
+    }
 }
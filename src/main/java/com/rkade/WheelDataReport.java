@@ -1,25 +1,50 @@
 package com.rkade;
 
 import java.nio.ByteBuffer;
+import java.util.Objects;
 
 public final class WheelDataReport extends DataReport {
-    private final int rawValue;
-    private final short value;
-    private final short range;
-    private final short velocity;
-    private final short acceleration;
-    private final double angle;
-    private final short min;
-    private final short max;
-    private final short center;
-    private final short deadZone;
-    private final boolean autoLimit;
-    private final byte trim;
-    private final boolean invertRotation;
+    int rawValue;
+    short value;
+    short range;
+    short velocity;
+    short acceleration;
+    double angle;
+    short min;
+    short max;
+    short center;
+    short deadZone;
+    boolean autoLimit;
+    byte trim;
+    boolean invertRotation;
 
     public WheelDataReport(byte reportType, byte reportIndex, short section, ByteBuffer buffer) {
         super(reportType, reportIndex, section);
+        decode(buffer);
+    }
+
+    WheelDataReport() {
+    }
 
+    private WheelDataReport(WheelDataReport other) {
+        super(other.reportType, (byte) other.reportIndex, other.section);
+        rawValue = other.rawValue;
+        value = other.value;
+        range = other.range;
+        velocity = other.velocity;
+        acceleration = other.acceleration;
+        angle = other.angle;
+        min = other.min;
+        max = other.max;
+        center = other.center;
+        deadZone = other.deadZone;
+        autoLimit = other.autoLimit;
+        trim = other.trim;
+        invertRotation = other.invertRotation;
+    }
+
+    @Override
+    void decode(ByteBuffer buffer) {
         rawValue = buffer.getInt();
         value = buffer.getShort();
         range = buffer.getShort();
@@ -39,6 +64,11 @@ public final class WheelDataReport extends DataReport {
         }
     }
 
+    @Override
+    public WheelDataReport snapshot() {
+        return new WheelDataReport(this);
+    }
+
     public int getRawValue() {
         return rawValue;
     }
@@ -90,4 +120,24 @@ public final class WheelDataReport extends DataReport {
     public boolean isInvertRotation() {
         return invertRotation;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof WheelDataReport that)) {
+            return false;
+        }
+        return headerEquals(that) && rawValue == that.rawValue && value == that.value && range == that.range
+                && velocity == that.velocity && acceleration == that.acceleration && min == that.min
+                && max == that.max && center == that.center && deadZone == that.deadZone
+                && autoLimit == that.autoLimit && trim == that.trim && invertRotation == that.invertRotation;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(section, rawValue, value, range, velocity, acceleration, min, max, center, deadZone,
+                autoLimit, trim, invertRotation);
+    }
 }
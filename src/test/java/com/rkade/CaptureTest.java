@@ -0,0 +1,127 @@
+package com.rkade;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Records reports into segment files and reads them back.
+ */
+public class CaptureTest extends TestCase {
+    private Path directory;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("capture");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    public void testRecordsRotateAcrossSegmentsAndReadBackInOrder() throws Exception {
+        Path capture = directory.resolve("session");
+        TelemetryRecorder recorder = new TelemetryRecorder(capture, 1024);
+        byte[] report = new byte[64];
+        for (int i = 0; i < 100; i++) {
+            report[0] = (byte) i;
+            report[63] = (byte) -i;
+            recorder.onInputReport(Device.DATA_REPORT_ID, report, report.length);
+        }
+        //only data reports are recorded
+        recorder.onInputReport(Device.CMD_REPORT_ID, report, 7);
+        recorder.close();
+
+        assertEquals(100, recorder.getRecordedCount());
+        assertEquals(0, recorder.getDroppedCount());
+        assertTrue(CaptureReader.segments(capture).size() > 1);
+        int count = 0;
+        long last = 0;
+        for (CaptureReader.Record record : CaptureReader.open(capture)) {
+            assertEquals(Device.DATA_REPORT_ID, record.reportId());
+            assertEquals(64, record.length());
+            assertEquals((byte) count, record.get(0));
+            assertEquals((byte) -count, record.payload().get(63));
+            assertTrue(record.timestampNanos() >= last);
+            last = record.timestampNanos();
+            count++;
+        }
+        assertEquals(100, count);
+    }
+
+    public void testAnalysisInChunksMatchesOneThread() throws Exception {
+        Path capture = directory.resolve("analyzed");
+        TelemetryRecorder recorder = new TelemetryRecorder(capture, 4096);
+        ByteBuffer report = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 600; i++) {
+            //wheel centered, range 900
+            report.clear();
+            report.put(Device.CMD_GET_STEER).putShort((short) 0).putInt(0).putShort((short) 0).putShort((short) 900);
+            recorder.onInputReport(Device.DATA_REPORT_ID, report.array(), 64);
+            //first axis counts up
+            report.clear();
+            report.put(Device.CMD_GET_ANALOG).putShort((short) 0).putShort((short) i).putShort((short) i);
+            recorder.onInputReport(Device.DATA_REPORT_ID, report.array(), 64);
+            //first button toggles, held at the start
+            report.clear();
+            report.put(Device.CMD_GET_BUTTONS).putShort((short) 0).putInt(i % 2 == 0 ? 1 : 0);
+            recorder.onInputReport(Device.DATA_REPORT_ID, report.array(), 64);
+        }
+        recorder.close();
+        CaptureReader reader = CaptureReader.open(capture);
+
+        CaptureStatistics parallel = CaptureAnalyzer.analyze(reader, new ForkJoinPool(4), 7);
+        CaptureStatistics single = CaptureAnalyzer.analyze(reader, new ForkJoinPool(1), Integer.MAX_VALUE);
+
+        assertEquals(single.toString(), parallel.toString());
+        assertEquals(1800, parallel.getReportCount());
+        CaptureStatistics.AxisStatistics axis = parallel.getAxis(0);
+        assertEquals(600, axis.getCount());
+        assertEquals(0, axis.getMin());
+        assertEquals(599, axis.getMax());
+        assertEquals(299.5, axis.getMean());
+        assertTrue(Math.abs(axis.getPercentile(50) - 299) < 16);
+        assertEquals(0, parallel.getAxis(1).getCount());
+        assertEquals(600, parallel.getAngleCount(0));
+        assertEquals(299, parallel.getButtonPresses(0));
+        long gaps = 0;
+        for (int i = 0; i < 64; i++) {
+            gaps += parallel.getGapCount(i);
+        }
+        assertEquals(1799, gaps);
+    }
+
+    public void testRecordingOfDeviceReplaysAsThatDevice() throws Exception {
+        Path capture = directory.resolve("device");
+        SimulatedDevice simulated = new SimulatedDevice("recorded");
+        TelemetryRecorder recorder = new TelemetryRecorder(capture);
+        try {
+            Device device = DeviceManager.attach(simulated);
+            assertTrue(DeviceManager.setReportTap(device, recorder));
+            //long enough for the config reports, polled once a second
+            Thread.sleep(2500);
+        } finally {
+            simulated.close();
+            recorder.close();
+        }
+        List<CapturedReport> reports = CaptureReader.open(capture).toReports();
+        assertEquals(recorder.getRecordedCount(), reports.size());
+
+        Device replayed = DeviceManager.attach(new ReplayTransport("replayed", reports));
+        replayed.awaitState(DeviceState::hasConfig, 5000).get();
+        assertEquals(900, replayed.getState().getWheel().getRange());
+    }
+}
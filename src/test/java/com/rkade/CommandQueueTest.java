@@ -0,0 +1,45 @@
+package com.rkade;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Coalescing of pending writes to the same setting.
+ */
+public class CommandQueueTest extends TestCase {
+    private final CommandQueue queue = new CommandQueue();
+
+    private static DeviceCommand range(int value) {
+        return new DeviceCommand(Device.CMD_SET_RANGE, (short) value);
+    }
+
+    private CommandQueue.Entry write() {
+        CommandQueue.Entry entry = queue.poll();
+        queue.completed(entry, System.nanoTime(), System.nanoTime(), 7);
+        return entry;
+    }
+
+    public void testUserWriteReplacesOlderBatchWrite() {
+        CompletableFuture<CommandResult> batch = queue.add(range(540), CommandQueue.Priority.BATCH);
+        CompletableFuture<CommandResult> user = queue.add(range(900), CommandQueue.Priority.USER);
+
+        assertEquals(range(900), write().getCommand());
+        //the stale batch value is not written after it
+        assertNull(queue.poll());
+        assertTrue(user.join().isSuccess());
+        assertTrue(batch.join().isCoalesced());
+        assertEquals(range(540), batch.join().getCommand());
+    }
+
+    public void testBatchWriteTakesPlaceOfOlderUserWrite() {
+        queue.add(new DeviceCommand(Device.CMD_SET_GAIN, (short) 0, (short) 10), CommandQueue.Priority.USER);
+        CompletableFuture<CommandResult> user = queue.add(range(540), CommandQueue.Priority.USER);
+        queue.add(range(900), CommandQueue.Priority.BATCH);
+
+        write();
+        assertEquals(range(900), write().getCommand());
+        assertNull(queue.poll());
+        assertTrue(user.join().isCoalesced());
+    }
+}
@@ -0,0 +1,200 @@
+package com.rkade;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Commands and polling against a simulated device attached like a real one.
+ */
+public class DeviceTest extends TestCase {
+    private SimulatedDevice simulated;
+    private Device device;
+
+    @Override
+    protected void setUp() {
+        simulated = new SimulatedDevice(getName(), new Random(1));
+    }
+
+    @Override
+    protected void tearDown() {
+        simulated.close();
+    }
+
+    private void attach() throws Exception {
+        device = DeviceManager.attach(simulated);
+        //a lost settings report is only asked for again a second later
+        device.awaitState(DeviceState::hasConfig, 5000).get();
+    }
+
+    public void testStorageCommandCompletesWhenDeviceAnswersAgain() throws Exception {
+        simulated.setStorageTime(200);
+        attach();
+
+        CommandResult result = device.submitStorageCommand(Device.CMD_EESAVE, 2000).get(5, TimeUnit.SECONDS);
+
+        assertTrue(result.isConfirmed());
+        //nothing is answered while the board is busy
+        assertTrue(result.getConfirmNanos() >= TimeUnit.MILLISECONDS.toNanos(150));
+        assertTrue(result.getConfirmNanos() < TimeUnit.MILLISECONDS.toNanos(2000));
+    }
+
+    public void testStorageCommandIsConfirmedWhileSettingsAreNotShown() throws Exception {
+        simulated.setStorageTime(200);
+        attach();
+        //the axes tab only polls the wheel and the axes
+        DeviceManager.setSubscribedReports(Set.of(Device.CMD_GET_STEER, Device.CMD_GET_ANALOG));
+        try {
+            CommandResult result = device.submitStorageCommand(Device.CMD_EESAVE, 3000).get(5, TimeUnit.SECONDS);
+
+            assertTrue(result.isConfirmed());
+        } finally {
+            DeviceManager.setSubscribedReports(Set.of(Device.CMD_GET_STEER, Device.CMD_GET_ANALOG,
+                    Device.CMD_GET_BUTTONS, Device.CMD_GET_GAINS, Device.CMD_GET_MISC));
+        }
+    }
+
+    public void testStorageCommandTimesOutUnconfirmed() throws Exception {
+        simulated.setStorageTime(5000);
+        attach();
+
+        CommandResult result = device.submitStorageCommand(Device.CMD_EELOAD, 300).get(5, TimeUnit.SECONDS);
+
+        assertTrue(result.isSuccess());
+        assertFalse(result.isConfirmed());
+    }
+
+    public void testStorageCommandIgnoresAnswersRequestedBeforeTheWrite() throws Exception {
+        simulated.setStorageTime(5000);
+        attach();
+        long beforeWrite = System.nanoTime();
+
+        CompletableFuture<CommandResult> future = device.submitStorageCommand(Device.CMD_EESAVE, 2000);
+        Thread.sleep(100);
+        //an answer to a poll that was on its way when the command went out
+        device.onReport(device.getState().getGains(), beforeWrite);
+        assertFalse(future.isDone());
+        device.onReport(device.getState().getGains(), System.nanoTime());
+
+        assertTrue(future.get(5, TimeUnit.SECONDS).isConfirmed());
+    }
+
+    public void testSettersQueueWithoutWaitingForTheWrite() throws Exception {
+        attach();
+        assertTrue(device.setWheelRange((short) 360));
+        device.awaitState(s -> s.getWheel().getRange() == 360, 2000).get();
+        assertEquals(360, simulated.getSettings().get(new DeviceCommand(Device.CMD_SET_RANGE)).getArg1());
+
+        //nothing takes the commands of a device that is not attached, or no longer is
+        assertFalse(new Device("detached", "Detached").setWheelRange((short) 360));
+        simulated.close();
+        assertFalse(device.setWheelRange((short) 540));
+    }
+
+    public void testSetterBurstIsCoalesced() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        List<Short> gainWrites = new CopyOnWriteArrayList<>();
+        AbstractTransport transport = new AbstractTransport() {
+            @Override
+            protected int write(byte reportId, byte[] data, int length) {
+                writing.countDown();
+                try {
+                    //holds the output thread, so the burst piles up behind the report being written
+                    gate.await();
+                } catch (InterruptedException ex) {
+                    return -1;
+                }
+                if (data[0] == Device.CMD_SET_GAIN) {
+                    gainWrites.add((short) ((data[3] & 0xff) | (data[4] << 8)));
+                }
+                return length;
+            }
+
+            @Override
+            public String getPath() {
+                return "gated";
+            }
+
+            @Override
+            public String getName() {
+                return "Gated";
+            }
+
+            @Override
+            public void open() {
+            }
+
+            @Override
+            public void close() {
+                gate.countDown();
+                removed();
+            }
+        };
+        Device gated = DeviceManager.attach(transport);
+        try {
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+            CompletableFuture<CommandResult> first = gated.submit(new DeviceCommand(Device.CMD_SET_GAIN, (short) 0,
+                    (short) 1));
+            //a dragged slider
+            for (short value = 2; value <= 20; value++) {
+                assertTrue(gated.setGainValue((short) 0, value));
+            }
+            gate.countDown();
+
+            CommandResult result = first.get(5, TimeUnit.SECONDS);
+            assertTrue(result.isSuccess());
+            assertTrue(result.isCoalesced());
+            assertEquals(19, gated.getCoalescedCommandCount());
+            assertEquals(List.of((short) 20), gainWrites);
+        } finally {
+            transport.close();
+        }
+    }
+
+    public void testOnlyStorageCommandsAreAccepted() throws Exception {
+        attach();
+        try {
+            device.submitStorageCommand(Device.CMD_SET_RANGE, 100);
+            fail("not a storage command");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testEepromLoadRestoresSavedSettings() throws Exception {
+        attach();
+        DeviceCommand range = new DeviceCommand(Device.CMD_SET_RANGE, (short) 540);
+        assertTrue(device.submit(range, true).get(5, TimeUnit.SECONDS).isConfirmed());
+        assertTrue(device.submitStorageCommand(Device.CMD_EELOAD, 2000).get(5, TimeUnit.SECONDS).isConfirmed());
+
+        device.awaitState(s -> s.getWheel().getRange() == 900, 2000).get();
+        assertEquals(900, simulated.getSettings().get(range).getArg1());
+    }
+
+    public void testPollingCopesWithLatencyJitterAndLoss() throws Exception {
+        simulated.setLatency(1000, 2000);
+        simulated.setLossRate(0.1);
+        attach();
+
+        long version = device.getState().getVersion();
+        //the wheel keeps moving, so new states keep coming even though reports get lost
+        device.awaitState(s -> s.getVersion() > version + 20, 5000).get();
+        assertTrue(simulated.getLostReportCount() > 0);
+        assertTrue(simulated.getStats().getInputReports() < simulated.getStats().getOutputReports());
+    }
+
+    public void testCloseDetachesDevice() throws Exception {
+        attach();
+        assertTrue(DeviceManager.getAttachedDevices().contains(device));
+
+        simulated.close();
+
+        assertFalse(DeviceManager.getAttachedDevices().contains(device));
+    }
+}
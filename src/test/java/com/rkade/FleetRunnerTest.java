@@ -0,0 +1,111 @@
+package com.rkade;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies a profile to simulated devices, the way fleet mode does with attached ones.
+ */
+public class FleetRunnerTest extends TestCase {
+    private final static long TIMEOUT = 2000;
+    private final List<SimulatedDevice> simulated = new ArrayList<>();
+
+    @Override
+    protected void tearDown() {
+        for (SimulatedDevice device : simulated) {
+            device.close();
+        }
+    }
+
+    private List<Device> attach(SimulatedDevice... devices) throws IOException {
+        List<Device> attached = new ArrayList<>();
+        for (SimulatedDevice device : devices) {
+            simulated.add(device);
+            attached.add(DeviceManager.attach(device));
+        }
+        return attached;
+    }
+
+    private static DeviceConfig profile() throws Exception {
+        return DeviceProfile.read(new StringReader("""
+                wheel.range=540
+                wheel.limits=-30000,30000
+                axis.2.deadzone=100
+                axis.2.center=none
+                gain.0=512
+                misc.constantspring=true
+                buttons.debounce=10
+                """));
+    }
+
+    public void testProfileIsParsed() throws Exception {
+        DeviceConfig profile = profile();
+        assertEquals(7, profile.size());
+        //in the order of the file
+        List<DeviceCommand> commands = List.copyOf(profile.getCommands());
+        assertEquals(Device.CMD_SET_RANGE, commands.getFirst().getCommand());
+        assertEquals(Device.CMD_SET_DEBOUNCE, commands.getLast().getCommand());
+        assertEquals(new DeviceCommand(Device.CMD_SET_AADZ, (short) 1, (short) 100),
+                profile.get(new DeviceCommand(Device.CMD_SET_AADZ, (short) 1)));
+        assertEquals(new DeviceCommand(Device.CMD_SET_MISC, Device.MISC_CONSTANT_SPRING, (short) 1),
+                profile.get(new DeviceCommand(Device.CMD_SET_MISC, Device.MISC_CONSTANT_SPRING)));
+        try {
+            DeviceProfile.read(new StringReader("axis.8.deadzone=1"));
+            fail("axis out of range");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testProfileIsAppliedAndSavedOnEveryDevice() throws Exception {
+        DeviceConfig profile = profile();
+        List<Device> devices = attach(new SimulatedDevice("a"), new SimulatedDevice("b"), new SimulatedDevice("c"));
+
+        List<FleetRunner.Result> results = new FleetRunner(profile, TIMEOUT).run(devices);
+
+        assertEquals(3, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            FleetRunner.Result result = results.get(i);
+            assertTrue(FleetRunner.summary(results), result.isSuccess());
+            //axis 2 has no center already
+            assertEquals(profile.size() - 1, result.changes().size());
+            assertTrue(simulated.get(i).getEeprom().diff(profile).isEmpty());
+        }
+    }
+
+    public void testDeviceNotAnsweringFails() throws Exception {
+        DeviceConfig profile = profile();
+        SimulatedDevice silent = new SimulatedDevice("silent");
+        silent.setLossRate(1);
+        List<Device> devices = attach(new SimulatedDevice("ok"), silent);
+
+        List<FleetRunner.Result> results = new FleetRunner(profile, 500).run(devices);
+
+        assertTrue(results.get(0).isSuccess());
+        FleetRunner.Result failed = results.get(1);
+        assertFalse(failed.isSuccess());
+        assertEquals(List.of("no answer within 500ms"), failed.errors());
+        assertEquals(profile.size(), failed.remaining().size());
+        assertTrue(FleetRunner.summary(results).endsWith("1 of 2 device(s) configured"));
+    }
+
+    public void testDroppedWriteIsNotReadBack() throws Exception {
+        DeviceConfig profile = profile();
+        SimulatedDevice dropping = new SimulatedDevice("dropping");
+        //the range, written first
+        dropping.dropWrites(1);
+        List<Device> devices = attach(new SimulatedDevice("ok"), dropping);
+
+        List<FleetRunner.Result> results = new FleetRunner(profile, TIMEOUT).run(devices);
+
+        assertTrue(results.get(0).isSuccess());
+        FleetRunner.Result failed = results.get(1);
+        assertFalse(failed.isSuccess());
+        assertEquals(List.of(new DeviceCommand(Device.CMD_SET_RANGE, (short) 540)), failed.remaining());
+        assertEquals(List.of("1 setting(s) not read back"), failed.errors());
+        assertEquals(900, dropping.getEeprom().get(new DeviceCommand(Device.CMD_SET_RANGE)).getArg1());
+    }
+}
@@ -0,0 +1,58 @@
+package com.rkade;
+
+import junit.framework.TestCase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the hotplug watcher against a temp directory standing in for /dev.
+ */
+public class HotplugWatcherTest extends TestCase {
+    private Path dev;
+    private Semaphore changes;
+    private HotplugWatcher watcher;
+
+    @Override
+    protected void setUp() throws Exception {
+        dev = Files.createTempDirectory("dev");
+        changes = new Semaphore(0);
+        watcher = new HotplugWatcher(List.of(dev), "hidraw", changes::release);
+        assertTrue(watcher.start());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        watcher.close();
+        try (var files = Files.list(dev)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dev);
+    }
+
+    public void testAddAndRemoveAreReported() throws Exception {
+        Path node = Files.createFile(dev.resolve("hidraw3"));
+        assertTrue(changes.tryAcquire(10, TimeUnit.SECONDS));
+        Files.delete(node);
+        assertTrue(changes.tryAcquire(10, TimeUnit.SECONDS));
+        assertTrue(watcher.getEventCount() >= 2);
+    }
+
+    public void testOtherNodesAreIgnored() throws Exception {
+        Files.createFile(dev.resolve("ttyS0"));
+        assertFalse(changes.tryAcquire(500, TimeUnit.MILLISECONDS));
+        assertEquals(0, watcher.getEventCount());
+    }
+
+    public void testMissingDirectoryFallsBackToPolling() throws Exception {
+        HotplugWatcher missing = new HotplugWatcher(List.of(dev.resolve("missing")), "hidraw", () -> {
+        });
+        assertFalse(missing.start());
+        assertFalse(missing.isRunning());
+    }
+}
@@ -0,0 +1,53 @@
+package com.rkade;
+
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes into reused holders and keeps snapshots.
+ */
+public class ReportDecoderTest extends TestCase {
+
+    private static byte[] wheelReport(short range) {
+        ByteBuffer report = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+        report.put(Device.CMD_GET_STEER).putShort((short) 0).putInt(0).putShort((short) 0).putShort(range);
+        return report.array();
+    }
+
+    public void testSnapshotKeepsValuesWhenTheHolderIsReused() {
+        ReportDecoder decoder = new ReportDecoder();
+        WheelDataReport holder = (WheelDataReport) decoder.decode(Device.DATA_REPORT_ID, wheelReport((short) 900), 64);
+        WheelDataReport snapshot = holder.snapshot();
+        assertNotSame(holder, snapshot);
+        assertEquals(holder, snapshot);
+
+        assertSame(holder, decoder.decode(Device.DATA_REPORT_ID, wheelReport((short) 540), 64));
+        assertEquals(540, holder.getRange());
+        assertEquals(900, snapshot.getRange());
+        assertFalse(holder.equals(snapshot));
+    }
+
+    public void testFactoryDecodesReports() {
+        DataReport report = DataReportFactory.create(Device.DATA_REPORT_ID, wheelReport((short) 900));
+        assertTrue(report instanceof WheelDataReport);
+        assertEquals(900, ((WheelDataReport) report).getRange());
+        assertNull(DataReportFactory.create(Device.CMD_REPORT_ID, wheelReport((short) 900)));
+    }
+
+    public void testGainsCompareHeaderAndValues() {
+        ByteBuffer report = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+        report.put(Device.CMD_GET_GAINS).putShort((short) 0).putShort((short) 1024).putShort((short) 512);
+        GainsDataReport gains = (GainsDataReport) DataReportFactory.create(Device.DATA_REPORT_ID, report.array());
+        GainsDataReport same = (GainsDataReport) DataReportFactory.create(Device.DATA_REPORT_ID, report.array());
+        report.putShort(1, (short) 1);
+        GainsDataReport otherSection = (GainsDataReport) DataReportFactory.create(Device.DATA_REPORT_ID, report.array());
+
+        assertEquals(gains, same);
+        assertEquals(gains.hashCode(), same.hashCode());
+        assertEquals(512, otherSection.getGainValue((short) 1));
+        assertFalse(gains.equals(otherSection));
+        assertFalse(gains.hashCode() == otherSection.hashCode());
+    }
+}
@@ -0,0 +1,157 @@
+package com.rkade;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the protocol over the socket bridge and from a recording, without hardware.
+ */
+public class TransportTest extends TestCase {
+
+    public void testTcpBridgeCarriesCommandsAndReports() throws Exception {
+        SimulatedDevice simulated = new SimulatedDevice("served");
+        TcpTransportServer server = new TcpTransportServer(simulated, 0);
+        server.start();
+        TcpTransport client = new TcpTransport("localhost", server.getPort());
+        try {
+            Device device = DeviceManager.attach(client);
+            assertEquals("served", client.getName());
+            device.awaitState(DeviceState::hasConfig, 5000).get();
+
+            CommandResult result = device.submit(new DeviceCommand(Device.CMD_SET_RANGE, (short) 270), true)
+                    .get(5, TimeUnit.SECONDS);
+
+            assertTrue(result.isConfirmed());
+            assertEquals(270, simulated.getSettings().get(result.getCommand()).getArg1());
+            TransportStats stats = client.getStats();
+            assertTrue(stats.getOutputReports() > 0);
+            assertTrue(stats.getInputReports() > 0);
+            assertTrue(stats.getAnswerLatency().getCount() > 0);
+            assertEquals(stats.getInputReports() * 64, stats.getInputBytes());
+        } finally {
+            client.close();
+            server.close();
+        }
+    }
+
+    public void testReplayPlaysRecordingWithItsTiming() throws Exception {
+        List<CapturedReport> recording = record(new SimulatedDevice("recorded"));
+        //spread the reports 10ms apart
+        List<CapturedReport> spaced = new ArrayList<>();
+        for (int i = 0; i < recording.size(); i++) {
+            CapturedReport report = recording.get(i);
+            spaced.add(new CapturedReport(i * 10_000_000L, report.reportId(), report.data()));
+        }
+        ReplayTransport replay = new ReplayTransport("session", spaced);
+
+        long start = System.nanoTime();
+        Device device = DeviceManager.attach(replay);
+        device.awaitState(DeviceState::hasConfig, 5000).get();
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos((spaced.size() - 1) * 10L));
+        assertEquals(900, device.getState().getWheel().getRange());
+        //the device goes away when the recording ends
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (DeviceManager.getAttachedDevices().contains(device) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(DeviceManager.getAttachedDevices().contains(device));
+        assertEquals(spaced.size(), replay.getStats().getInputReports());
+    }
+
+    public void testReplaySpeed() throws Exception {
+        List<CapturedReport> recording = record(new SimulatedDevice("paced"));
+        //a second apart as recorded
+        List<CapturedReport> spaced = new ArrayList<>();
+        for (int i = 0; i < recording.size(); i++) {
+            CapturedReport report = recording.get(i);
+            spaced.add(new CapturedReport(i * 1_000_000_000L, report.reportId(), report.data()));
+        }
+
+        ReplayTransport fast = new ReplayTransport("fast", spaced);
+        fast.setSpeed(0);
+        long start = System.nanoTime();
+        DeviceManager.attach(fast);
+        assertEquals(spaced.size(), (long) fast.getFinished().get(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+        ReplayTransport scaled = new ReplayTransport("scaled", spaced);
+        scaled.setSpeed(100);
+        start = System.nanoTime();
+        Device device = DeviceManager.attach(scaled);
+        assertEquals(spaced.size(), (long) scaled.getFinished().get(5, TimeUnit.SECONDS));
+        //10ms apart at 100 times the recorded pace
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos((spaced.size() - 1) * 10L));
+        assertEquals(900, device.getState().getWheel().getRange());
+    }
+
+    public void testDeviceThatStopsTakingReportsIsClosed() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+        Device device = DeviceManager.attach(new AbstractTransport() {
+            @Override
+            protected int write(byte reportId, byte[] data, int length) {
+                return -1;
+            }
+
+            @Override
+            public String getPath() {
+                return "failing";
+            }
+
+            @Override
+            public String getName() {
+                return "Failing";
+            }
+
+            @Override
+            public void open() {
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        });
+
+        //given up on after a few failed polls, a quarter of a second apart
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (DeviceManager.getAttachedDevices().contains(device) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(DeviceManager.getAttachedDevices().contains(device));
+    }
+
+    private static List<CapturedReport> record(SimulatedDevice simulated) throws Exception {
+        List<CapturedReport> reports = new CopyOnWriteArrayList<>();
+        simulated.setInputReportListener((id, data, length) ->
+                reports.add(new CapturedReport(System.nanoTime(), id, data.clone())));
+        simulated.open();
+        byte[] request = new byte[7];
+        List<byte[]> requests = new ArrayList<>();
+        requests.add(new byte[]{Device.CMD_GET_STEER, 0});
+        for (byte i = 0; i < Device.AXIS_COUNT; i++) {
+            requests.add(new byte[]{Device.CMD_GET_ANALOG, i});
+        }
+        requests.add(new byte[]{Device.CMD_GET_BUTTONS, 0});
+        requests.add(new byte[]{Device.CMD_GET_GAINS, 0});
+        requests.add(new byte[]{Device.CMD_GET_MISC, 0});
+        for (byte[] get : requests) {
+            request[0] = get[0];
+            request[1] = get[1];
+            assertEquals(7, simulated.setOutputReport(Device.CMD_REPORT_ID, request, 7));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (reports.size() < requests.size() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        simulated.close();
+        assertEquals(requests.size(), reports.size());
+        return reports;
+    }
+}